@@ -22,6 +22,249 @@ public class Constants {
      */
     public static final String WEBXML_CONFIG_PUBLIC_WORKSETS_QUERY = "publicWorksetsPathQuery";
 
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving a page of public
+     * worksets
+     */
+    public static final String WEBXML_CONFIG_PUBLIC_WORKSETS_PAGE_QUERY =
+        "publicWorksetsPathPageQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to create the public worksets
+     * index
+     */
+    public static final String WEBXML_CONFIG_PUBLIC_INDEX_CREATE_QUERY =
+        "publicWorksetsIndexCreateQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to clear the public worksets
+     * index
+     */
+    public static final String WEBXML_CONFIG_PUBLIC_INDEX_CLEAR_QUERY =
+        "publicWorksetsIndexClearQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to populate the public
+     * worksets index from the registry permissions
+     */
+    public static final String WEBXML_CONFIG_PUBLIC_INDEX_REBUILD_QUERY =
+        "publicWorksetsIndexRebuildQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to add a workset to the public
+     * worksets index
+     */
+    public static final String WEBXML_CONFIG_PUBLIC_INDEX_INSERT_QUERY =
+        "publicWorksetsIndexInsertQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to remove a workset from the
+     * public worksets index
+     */
+    public static final String WEBXML_CONFIG_PUBLIC_INDEX_DELETE_QUERY =
+        "publicWorksetsIndexDeleteQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to create the workset tag
+     * index
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_CREATE_QUERY = "worksetTagIndexCreateQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to clear the workset tag index
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_CLEAR_QUERY = "worksetTagIndexClearQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to populate the workset tag
+     * index from the registry tags
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_REBUILD_QUERY =
+        "worksetTagIndexRebuildQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to add a workset tag to the
+     * workset tag index
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_INSERT_QUERY = "worksetTagIndexInsertQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to remove the tags of a
+     * workset from the workset tag index
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_DELETE_QUERY = "worksetTagIndexDeleteQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving the worksets of a
+     * collection having a tag
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_PATH_QUERY = "worksetTagIndexPathQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving the public
+     * worksets having a tag
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_PUBLIC_PATH_QUERY =
+        "worksetTagIndexPublicPathQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving a page of the
+     * public worksets having a tag
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_PUBLIC_PATH_PAGE_QUERY =
+        "worksetTagIndexPublicPathPageQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for counting the public
+     * worksets having each tag
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_PUBLIC_COUNTS_QUERY =
+        "worksetTagIndexPublicCountsQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for counting the worksets of a
+     * collection (and optionally the public worksets) having each tag
+     */
+    public static final String WEBXML_CONFIG_TAG_INDEX_COUNTS_QUERY = "worksetTagIndexCountsQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving the paths of the
+     * user workset collections, when building the workset search index
+     */
+    public static final String WEBXML_CONFIG_WORKSET_SEARCH_COLLECTIONS_QUERY =
+        "worksetSearchCollectionsQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving the volume count
+     * and public flag of all the user worksets, when initializing the workset statistics
+     */
+    public static final String WEBXML_CONFIG_WORKSET_STATS_QUERY = "worksetStatsQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for resolving registry path ids
+     */
+    public static final String WEBXML_CONFIG_WORKSETS_PATH_IDS_QUERY = "worksetsPathIdsQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving worksets resources
+     */
+    public static final String WEBXML_CONFIG_WORKSETS_RESOURCES_QUERY = "worksetsResourcesQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving worksets properties
+     */
+    public static final String WEBXML_CONFIG_WORKSETS_PROPERTIES_QUERY = "worksetsPropertiesQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving worksets tags
+     */
+    public static final String WEBXML_CONFIG_WORKSETS_TAGS_QUERY = "worksetsTagsQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to create the volume id
+     * dictionary
+     */
+    public static final String WEBXML_CONFIG_VOLUME_IDS_CREATE_QUERY = "volumeIdsCreateQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for looking up the numbers
+     * assigned to volume ids
+     */
+    public static final String WEBXML_CONFIG_VOLUME_IDS_LOOKUP_QUERY = "volumeIdsLookupQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for looking up the volume ids
+     * assigned to numbers
+     */
+    public static final String WEBXML_CONFIG_VOLUME_IDS_REVERSE_QUERY = "volumeIdsReverseQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to add a volume id to the
+     * volume id dictionary
+     */
+    public static final String WEBXML_CONFIG_VOLUME_IDS_INSERT_QUERY = "volumeIdsInsertQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to create the workset bitmaps
+     * table
+     */
+    public static final String WEBXML_CONFIG_WORKSET_BITMAPS_CREATE_QUERY =
+        "worksetBitmapsCreateQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query to use for retrieving a workset bitmap
+     */
+    public static final String WEBXML_CONFIG_WORKSET_BITMAPS_SELECT_QUERY =
+        "worksetBitmapsSelectQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to store a workset bitmap
+     */
+    public static final String WEBXML_CONFIG_WORKSET_BITMAPS_UPSERT_QUERY =
+        "worksetBitmapsUpsertQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to delete a workset bitmap
+     */
+    public static final String WEBXML_CONFIG_WORKSET_BITMAPS_DELETE_QUERY =
+        "worksetBitmapsDeleteQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to create the volume to
+     * workset index
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_CREATE_QUERY =
+        "volumeWorksetIndexCreateQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query used to check whether the volume to
+     * workset index is empty
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_EMPTY_QUERY =
+        "volumeWorksetIndexEmptyQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to clear the volume to workset
+     * index
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_CLEAR_QUERY =
+        "volumeWorksetIndexClearQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query used to retrieve the paths of all the
+     * user worksets, when rebuilding the volume to workset index
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_WORKSETS_QUERY =
+        "volumeWorksetIndexWorksetsQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to add a workset volume to the
+     * volume to workset index
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_INSERT_QUERY =
+        "volumeWorksetIndexInsertQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to remove the volumes of a
+     * workset from the volume to workset index
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_DELETE_QUERY =
+        "volumeWorksetIndexDeleteQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL statement used to remove some of the volumes
+     * of a workset from the volume to workset index
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_DELETE_VOLUMES_QUERY =
+        "volumeWorksetIndexDeleteVolumesQuery";
+
+    /**
+     * The web.xml parameter for specifying the SQL query used to retrieve the public worksets
+     * containing a set of volumes
+     */
+    public static final String WEBXML_CONFIG_VOLUME_INDEX_PUBLIC_LOOKUP_QUERY =
+        "volumeWorksetIndexPublicLookupQuery";
+
     /**
      * The section name in the configuration file used to store registry extension configuration
      */
@@ -63,6 +306,90 @@ public class Constants {
      */
     public static final String HTRC_CONFIG_PUBLIC_FILES = "public.files";
 
+    /**
+     * The encoding used when storing workset content in the registry ("xml" or "deflate")
+     */
+    public static final String HTRC_CONFIG_WORKSET_CONTENT_ENCODING = "workset.content.encoding";
+
+    /**
+     * The maximum number of resources whose permission checks are kept in memory (0 disables
+     * caching)
+     */
+    public static final String HTRC_CONFIG_AUTH_CACHE_SIZE = "authCache.size";
+
+    /**
+     * The number of seconds permission checks are kept in memory (0 disables caching)
+     */
+    public static final String HTRC_CONFIG_AUTH_CACHE_TTL = "authCache.ttl";
+
+    /**
+     * The maximum number of workset metadata entries kept in memory (0 disables caching)
+     */
+    public static final String HTRC_CONFIG_WORKSET_META_CACHE_SIZE = "workset.metaCache.size";
+
+    /**
+     * The number of threads used for retrieving worksets concurrently (0 disables concurrency)
+     */
+    public static final String HTRC_CONFIG_WORKSET_FETCH_THREADS = "workset.fetch.threads";
+
+    /**
+     * True/False indicating whether the public worksets index is rebuilt on startup
+     */
+    public static final String HTRC_CONFIG_WORKSET_PUBLIC_INDEX_REBUILD =
+        "workset.publicIndex.rebuild";
+
+    /**
+     * True/False indicating whether the workset tag index is rebuilt on startup
+     */
+    public static final String HTRC_CONFIG_WORKSET_TAG_INDEX_REBUILD = "workset.tagIndex.rebuild";
+
+    /**
+     * True/False indicating whether the volume to workset index is rebuilt on startup (it is
+     * always built when empty)
+     */
+    public static final String HTRC_CONFIG_WORKSET_VOLUME_INDEX_REBUILD =
+        "workset.volumeIndex.rebuild";
+
+    /**
+     * The directory holding the workset search index
+     */
+    public static final String HTRC_CONFIG_WORKSET_SEARCH_PATH = "workset.search.path";
+
+    /**
+     * True/False indicating whether the workset search index is rebuilt on startup
+     */
+    public static final String HTRC_CONFIG_WORKSET_SEARCH_REBUILD = "workset.search.rebuild";
+
+    /**
+     * The volume count above which worksets are stored in the segmented layout
+     */
+    public static final String HTRC_CONFIG_WORKSET_SEGMENT_THRESHOLD = "workset.segment.threshold";
+
+    /**
+     * The number of volumes stored in each segment of a workset stored in the segmented layout
+     */
+    public static final String HTRC_CONFIG_WORKSET_SEGMENT_SIZE = "workset.segment.size";
+
+    /**
+     * The path where the segments of worksets stored in the segmented layout are kept
+     */
+    public static final String HTRC_CONFIG_WORKSET_SEGMENT_PATH = "workset.segment.path";
+
+    /**
+     * The number of threads used for importing worksets asynchronously
+     */
+    public static final String HTRC_CONFIG_WORKSET_IMPORT_THREADS = "workset.import.threads";
+
+    /**
+     * The maximum number of asynchronous workset imports waiting to be processed
+     */
+    public static final String HTRC_CONFIG_WORKSET_IMPORT_QUEUE_SIZE = "workset.import.queueSize";
+
+    /**
+     * The number of minutes the status of a finished workset import is kept for
+     */
+    public static final String HTRC_CONFIG_WORKSET_IMPORT_RETENTION = "workset.import.retention";
+
     /**
      * The regular expression used to validate registry resource names
      */
@@ -78,6 +405,35 @@ public class Constants {
      */
     public static final String HTRC_PROP_PUBLIC = "htrc.public";
 
+    /**
+     * The property used for workset resources to store the encoding of the workset content
+     */
+    public static final String HTRC_PROP_CONTENT_ENCODING = "htrc.contentEncoding";
+
+    /**
+     * The (multi-valued) property used for workset resources to store the names of the volume
+     * properties used by the volumes in the workset, in order of first appearance
+     */
+    public static final String HTRC_PROP_VOLUME_PROPERTIES = "htrc.volumeProperties";
+
+    /**
+     * The property used for workset resources to store an opaque token that changes whenever
+     * the workset is written (used for computing entity tags)
+     */
+    public static final String HTRC_PROP_REVISION = "htrc.revision";
+
+    /**
+     * The property used for workset resources to store the layout of the workset content;
+     * absent for worksets whose volumes are stored as the content of the workset resource
+     */
+    public static final String HTRC_PROP_LAYOUT = "htrc.layout";
+
+    /**
+     * The {@link #HTRC_PROP_LAYOUT} value of worksets whose volumes are stored in segments,
+     * with the content of the workset resource holding the segment manifest
+     */
+    public static final String HTRC_LAYOUT_SEGMENTED = "segmented";
+
     /**
      * The claim URL for retrieving a user's alias
      */
@@ -26,4 +26,7 @@ public class HTRCMediaTypes {
     // CSV
     public static final String TEXT_CSV = "text/csv";
 
+    // Newline-delimited JSON
+    public static final String NDJSON = "application/x-ndjson";
+
 }
@@ -5,10 +5,21 @@ import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigFactory;
 import edu.illinois.i3.htrc.registry.api.exceptions.RegistryExtensionConfigurationException;
 import edu.illinois.i3.htrc.registry.api.exceptions.RegistryExtensionException;
+import edu.illinois.i3.htrc.registry.api.utils.PublicWorksetIndex;
 import edu.illinois.i3.htrc.registry.api.utils.RegistryUtils;
+import edu.illinois.i3.htrc.registry.api.utils.VolumeIdDictionary;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetBitmaps;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetCounters;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetImports;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetSearchIndex;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetTagIndex;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetVolumeIndex;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
+import java.sql.SQLException;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
@@ -78,7 +89,9 @@ public class RegistryExtension implements ServletContextListener {
                     "Could not obtain a RegistryContext instance!");
             }
 
-            RegistryUtils.initialize(_registryContext);
+            RegistryUtils.initialize(_registryContext, _config);
+            WorksetUtils.initialize(_config);
+            WorksetImports.initialize(_config);
             setupRegistry(context);
 
             Log.info(webappName + " successfully initialized");
@@ -93,6 +106,10 @@ public class RegistryExtension implements ServletContextListener {
      * @see ServletContextListener#contextDestroyed(ServletContextEvent)
      */
     public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        WorksetImports.shutdown();
+        WorksetSearchIndex.shutdown();
+        WorksetVolumeIndex.shutdown();
+        WorksetUtils.shutdown();
     }
 
     /**
@@ -124,11 +141,31 @@ public class RegistryExtension implements ServletContextListener {
      * @param context The servlet context
      * @throws RegistryException  Thrown if a registry error occurs
      * @throws UserStoreException Thrown if a user store error occurs
+     * @throws SQLException       Thrown if an error occurs when communicating with the database
+     * @throws IOException        Thrown if the workset search index cannot be opened
      */
     protected void setupRegistry(ServletContext context)
-        throws RegistryException, UserStoreException {
+        throws RegistryException, UserStoreException, SQLException, IOException {
         UserRegistry registry = RegistryUtils.getAdminRegistry();
         createRequiredPaths(registry);
+        PublicWorksetIndex.initialize(context, _config.isWorksetPublicIndexRebuild());
+        WorksetTagIndex.initialize(context, _config.isWorksetTagIndexRebuild());
+        VolumeIdDictionary.initialize(context);
+        WorksetBitmaps.initialize(context);
+        WorksetVolumeIndex.initialize(context, _config.isWorksetVolumeIndexRebuild());
+        WorksetCounters.initialize(context);
+        WorksetSearchIndex.initialize(context, getWorksetSearchDir(context),
+                                      _config.isWorksetSearchRebuild());
+    }
+
+    private File getWorksetSearchDir(ServletContext context) {
+        String searchPath = _config.getWorksetSearchPath();
+        if (searchPath != null) {
+            return new File(searchPath);
+        }
+
+        File workDir = (File) context.getAttribute("javax.servlet.context.tempdir");
+        return new File(workDir, "workset-search");
     }
 
     private void createRequiredPaths(UserRegistry registry)
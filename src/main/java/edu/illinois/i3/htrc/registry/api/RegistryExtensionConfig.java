@@ -2,6 +2,7 @@ package edu.illinois.i3.htrc.registry.api;
 
 import com.typesafe.config.Config;
 import edu.illinois.i3.htrc.registry.api.exceptions.RegistryExtensionConfigurationException;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetContentEncoding;
 import java.util.Arrays;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -24,11 +25,40 @@ public class RegistryExtensionConfig {
         Constants.HTRC_CONFIG_USER_FILES
     };
     private static final Log Log = LogFactory.getLog(RegistryExtensionConfig.class);
+    private static final int DEFAULT_AUTH_CACHE_SIZE = 10000;
+    private static final int DEFAULT_AUTH_CACHE_TTL = 60;
+    private static final int DEFAULT_WORKSET_META_CACHE_SIZE = 10000;
+    private static final int DEFAULT_WORKSET_FETCH_THREADS = 8;
+    private static final boolean DEFAULT_WORKSET_PUBLIC_INDEX_REBUILD = true;
+    private static final boolean DEFAULT_WORKSET_TAG_INDEX_REBUILD = true;
+    private static final boolean DEFAULT_WORKSET_VOLUME_INDEX_REBUILD = false;
+    private static final boolean DEFAULT_WORKSET_SEARCH_REBUILD = false;
+    private static final int DEFAULT_WORKSET_SEGMENT_THRESHOLD = 100000;
+    private static final int DEFAULT_WORKSET_SEGMENT_SIZE = 10000;
+    private static final int DEFAULT_WORKSET_IMPORT_THREADS = 2;
+    private static final int DEFAULT_WORKSET_IMPORT_QUEUE_SIZE = 10;
+    private static final int DEFAULT_WORKSET_IMPORT_RETENTION = 60;
     private final String _cfgBasePath;
     private final String _cfgPublicFilesPath;
     private final String _cfgPublicPath;
     private final String _cfgUserWorksetsPath;
     private final String _cfgUserFilesPath;
+    private final WorksetContentEncoding _cfgWorksetContentEncoding;
+    private final int _cfgAuthCacheSize;
+    private final int _cfgAuthCacheTtl;
+    private final int _cfgWorksetMetaCacheSize;
+    private final int _cfgWorksetFetchThreads;
+    private final boolean _cfgWorksetPublicIndexRebuild;
+    private final boolean _cfgWorksetTagIndexRebuild;
+    private final boolean _cfgWorksetVolumeIndexRebuild;
+    private final String _cfgWorksetSearchPath;
+    private final boolean _cfgWorksetSearchRebuild;
+    private final int _cfgWorksetSegmentThreshold;
+    private final int _cfgWorksetSegmentSize;
+    private final String _cfgWorksetSegmentPath;
+    private final int _cfgWorksetImportThreads;
+    private final int _cfgWorksetImportQueueSize;
+    private final int _cfgWorksetImportRetention;
 
     /**
      * Constructor
@@ -60,6 +90,96 @@ public class RegistryExtensionConfig {
         _cfgPublicFilesPath = config.getString(Constants.HTRC_CONFIG_PUBLIC_FILES);
         _cfgUserWorksetsPath = config.getString(Constants.HTRC_CONFIG_USER_WORKSETS);
         _cfgUserFilesPath = config.getString(Constants.HTRC_CONFIG_USER_FILES);
+
+        if (config.hasPath(Constants.HTRC_CONFIG_WORKSET_CONTENT_ENCODING)) {
+            String encodingName = config.getString(Constants.HTRC_CONFIG_WORKSET_CONTENT_ENCODING);
+            _cfgWorksetContentEncoding = WorksetContentEncoding.forName(encodingName);
+            if (_cfgWorksetContentEncoding == null) {
+                throw new RegistryExtensionConfigurationException(
+                    "Unknown workset content encoding: " + encodingName);
+            }
+        }
+        else {
+            _cfgWorksetContentEncoding = WorksetContentEncoding.DEFLATE;
+        }
+
+        _cfgAuthCacheSize = config.hasPath(Constants.HTRC_CONFIG_AUTH_CACHE_SIZE) ?
+            config.getInt(Constants.HTRC_CONFIG_AUTH_CACHE_SIZE) :
+            DEFAULT_AUTH_CACHE_SIZE;
+
+        _cfgAuthCacheTtl = config.hasPath(Constants.HTRC_CONFIG_AUTH_CACHE_TTL) ?
+            config.getInt(Constants.HTRC_CONFIG_AUTH_CACHE_TTL) :
+            DEFAULT_AUTH_CACHE_TTL;
+
+        _cfgWorksetMetaCacheSize = config.hasPath(Constants.HTRC_CONFIG_WORKSET_META_CACHE_SIZE) ?
+            config.getInt(Constants.HTRC_CONFIG_WORKSET_META_CACHE_SIZE) :
+            DEFAULT_WORKSET_META_CACHE_SIZE;
+
+        _cfgWorksetFetchThreads = config.hasPath(Constants.HTRC_CONFIG_WORKSET_FETCH_THREADS) ?
+            config.getInt(Constants.HTRC_CONFIG_WORKSET_FETCH_THREADS) :
+            DEFAULT_WORKSET_FETCH_THREADS;
+
+        _cfgWorksetPublicIndexRebuild =
+            config.hasPath(Constants.HTRC_CONFIG_WORKSET_PUBLIC_INDEX_REBUILD) ?
+                config.getBoolean(Constants.HTRC_CONFIG_WORKSET_PUBLIC_INDEX_REBUILD) :
+                DEFAULT_WORKSET_PUBLIC_INDEX_REBUILD;
+
+        _cfgWorksetTagIndexRebuild =
+            config.hasPath(Constants.HTRC_CONFIG_WORKSET_TAG_INDEX_REBUILD) ?
+                config.getBoolean(Constants.HTRC_CONFIG_WORKSET_TAG_INDEX_REBUILD) :
+                DEFAULT_WORKSET_TAG_INDEX_REBUILD;
+
+        _cfgWorksetVolumeIndexRebuild =
+            config.hasPath(Constants.HTRC_CONFIG_WORKSET_VOLUME_INDEX_REBUILD) ?
+                config.getBoolean(Constants.HTRC_CONFIG_WORKSET_VOLUME_INDEX_REBUILD) :
+                DEFAULT_WORKSET_VOLUME_INDEX_REBUILD;
+
+        _cfgWorksetSearchPath = config.hasPath(Constants.HTRC_CONFIG_WORKSET_SEARCH_PATH) ?
+            config.getString(Constants.HTRC_CONFIG_WORKSET_SEARCH_PATH) :
+            null;
+
+        _cfgWorksetSearchRebuild = config.hasPath(Constants.HTRC_CONFIG_WORKSET_SEARCH_REBUILD) ?
+            config.getBoolean(Constants.HTRC_CONFIG_WORKSET_SEARCH_REBUILD) :
+            DEFAULT_WORKSET_SEARCH_REBUILD;
+
+        _cfgWorksetSegmentThreshold =
+            config.hasPath(Constants.HTRC_CONFIG_WORKSET_SEGMENT_THRESHOLD) ?
+                config.getInt(Constants.HTRC_CONFIG_WORKSET_SEGMENT_THRESHOLD) :
+                DEFAULT_WORKSET_SEGMENT_THRESHOLD;
+
+        _cfgWorksetSegmentSize = config.hasPath(Constants.HTRC_CONFIG_WORKSET_SEGMENT_SIZE) ?
+            config.getInt(Constants.HTRC_CONFIG_WORKSET_SEGMENT_SIZE) :
+            DEFAULT_WORKSET_SEGMENT_SIZE;
+        if (_cfgWorksetSegmentSize < 1) {
+            throw new RegistryExtensionConfigurationException(
+                "Invalid workset segment size: " + _cfgWorksetSegmentSize);
+        }
+
+        _cfgWorksetSegmentPath = config.hasPath(Constants.HTRC_CONFIG_WORKSET_SEGMENT_PATH) ?
+            config.getString(Constants.HTRC_CONFIG_WORKSET_SEGMENT_PATH) :
+            _cfgBasePath + "/_SEGMENTS_";
+
+        _cfgWorksetImportThreads = config.hasPath(Constants.HTRC_CONFIG_WORKSET_IMPORT_THREADS) ?
+            config.getInt(Constants.HTRC_CONFIG_WORKSET_IMPORT_THREADS) :
+            DEFAULT_WORKSET_IMPORT_THREADS;
+        if (_cfgWorksetImportThreads < 1) {
+            throw new RegistryExtensionConfigurationException(
+                "Invalid number of workset import threads: " + _cfgWorksetImportThreads);
+        }
+
+        _cfgWorksetImportQueueSize =
+            config.hasPath(Constants.HTRC_CONFIG_WORKSET_IMPORT_QUEUE_SIZE) ?
+                config.getInt(Constants.HTRC_CONFIG_WORKSET_IMPORT_QUEUE_SIZE) :
+                DEFAULT_WORKSET_IMPORT_QUEUE_SIZE;
+        if (_cfgWorksetImportQueueSize < 1) {
+            throw new RegistryExtensionConfigurationException(
+                "Invalid workset import queue size: " + _cfgWorksetImportQueueSize);
+        }
+
+        _cfgWorksetImportRetention =
+            config.hasPath(Constants.HTRC_CONFIG_WORKSET_IMPORT_RETENTION) ?
+                config.getInt(Constants.HTRC_CONFIG_WORKSET_IMPORT_RETENTION) :
+                DEFAULT_WORKSET_IMPORT_RETENTION;
     }
 
     /**
@@ -119,4 +239,152 @@ public class RegistryExtensionConfig {
     public String getUserWorksetsPath(String userName) {
         return String.format(_cfgUserWorksetsPath, userName);
     }
+
+    /**
+     * Return the encoding used when storing workset content in the registry
+     *
+     * @return The encoding used when storing workset content in the registry
+     */
+    public WorksetContentEncoding getWorksetContentEncoding() {
+        return _cfgWorksetContentEncoding;
+    }
+
+    /**
+     * Return the maximum number of resources whose permission checks are kept in memory
+     *
+     * @return The maximum number of resources whose permission checks are kept in memory
+     * (0 = no caching)
+     */
+    public int getAuthCacheSize() {
+        return _cfgAuthCacheSize;
+    }
+
+    /**
+     * Return the number of seconds permission checks are kept in memory
+     *
+     * @return The number of seconds permission checks are kept in memory (0 = no caching)
+     */
+    public int getAuthCacheTtl() {
+        return _cfgAuthCacheTtl;
+    }
+
+    /**
+     * Return the maximum number of workset metadata entries kept in memory
+     *
+     * @return The maximum number of workset metadata entries kept in memory (0 = no caching)
+     */
+    public int getWorksetMetaCacheSize() {
+        return _cfgWorksetMetaCacheSize;
+    }
+
+    /**
+     * Return the number of threads used for retrieving worksets concurrently
+     *
+     * @return The number of threads used for retrieving worksets concurrently (0 = sequential)
+     */
+    public int getWorksetFetchThreads() {
+        return _cfgWorksetFetchThreads;
+    }
+
+    /**
+     * Return whether the public worksets index is rebuilt on startup
+     *
+     * @return True if the public worksets index is rebuilt on startup, False otherwise
+     */
+    public boolean isWorksetPublicIndexRebuild() {
+        return _cfgWorksetPublicIndexRebuild;
+    }
+
+    /**
+     * Return whether the workset tag index is rebuilt on startup
+     *
+     * @return True if the workset tag index is rebuilt on startup, False otherwise
+     */
+    public boolean isWorksetTagIndexRebuild() {
+        return _cfgWorksetTagIndexRebuild;
+    }
+
+    /**
+     * Return whether the volume to workset index is rebuilt on startup
+     *
+     * @return True if the volume to workset index is rebuilt on startup, False if it is only
+     * built when empty
+     */
+    public boolean isWorksetVolumeIndexRebuild() {
+        return _cfgWorksetVolumeIndexRebuild;
+    }
+
+    /**
+     * Return the directory holding the workset search index
+     *
+     * @return The directory holding the workset search index (null = in the webapp work
+     * directory)
+     */
+    public String getWorksetSearchPath() {
+        return _cfgWorksetSearchPath;
+    }
+
+    /**
+     * Return whether the workset search index is rebuilt on startup
+     *
+     * @return True if the workset search index is rebuilt on startup, False otherwise
+     */
+    public boolean isWorksetSearchRebuild() {
+        return _cfgWorksetSearchRebuild;
+    }
+
+    /**
+     * Return the volume count above which worksets are stored in the segmented layout
+     *
+     * @return The volume count above which worksets are stored in the segmented layout
+     * (0 = worksets are always stored as a whole)
+     */
+    public int getWorksetSegmentThreshold() {
+        return _cfgWorksetSegmentThreshold;
+    }
+
+    /**
+     * Return the number of volumes stored in each workset segment
+     *
+     * @return The number of volumes stored in each workset segment
+     */
+    public int getWorksetSegmentSize() {
+        return _cfgWorksetSegmentSize;
+    }
+
+    /**
+     * Return the path where workset segments are stored in the registry
+     *
+     * @return The path where workset segments are stored in the registry
+     */
+    public String getWorksetSegmentPath() {
+        return _cfgWorksetSegmentPath;
+    }
+
+    /**
+     * Return the number of threads used for importing worksets asynchronously
+     *
+     * @return The number of threads used for importing worksets asynchronously
+     */
+    public int getWorksetImportThreads() {
+        return _cfgWorksetImportThreads;
+    }
+
+    /**
+     * Return the maximum number of asynchronous workset imports waiting to be processed
+     *
+     * @return The maximum number of asynchronous workset imports waiting to be processed
+     */
+    public int getWorksetImportQueueSize() {
+        return _cfgWorksetImportQueueSize;
+    }
+
+    /**
+     * Return the number of minutes the status of a finished workset import is kept for
+     *
+     * @return The number of minutes the status of a finished workset import is kept for
+     */
+    public int getWorksetImportRetention() {
+        return _cfgWorksetImportRetention;
+    }
 }
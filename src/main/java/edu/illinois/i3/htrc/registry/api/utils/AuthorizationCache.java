@@ -0,0 +1,289 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the permission checks made for registry resources: the authorization
+ * decisions for (user, resource path, action), and the "public" flags of resources. Entries
+ * expire after a fixed time, which bounds how long changes not made through
+ * {@link RegistryUtils} (e.g. role membership changes) take to be noticed; entries for a path
+ * must be invalidated explicitly whenever the permissions of the path change.
+ * <p>
+ * Entries are kept sorted by path, so that the entries below an invalidated path are removed as
+ * a range rather than by scanning the cache, and are accessed without a global lock. When the
+ * cache is full, entries not accessed since the previous sweep are evicted first.
+ * <p>
+ * Values computed before an invalidation of their path (or of a path above it) are not cached,
+ * so that a check racing with a permission change cannot cache the outdated result. The
+ * invalidation is recorded on the entry of the invalidated path, so that checks of unrelated
+ * paths keep being cached.
+ *
+ * @author capitanu
+ */
+public class AuthorizationCache {
+
+    // the number of recently accessed entries skipped at most when looking for one to evict
+    private static final int MAX_EVICTION_SKIPS = 8;
+
+    private final ConcurrentNavigableMap<String, PathEntry> _entries =
+        new ConcurrentSkipListMap<>();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final AtomicLong _clock = new AtomicLong();
+    // the latest invalidation whose record was evicted, which can no longer be scoped to a path
+    private final AtomicLong _evictedInvalidation = new AtomicLong();
+    private final int _maxSize;
+    private final long _ttlMillis;
+    private volatile String _evictionCursor;
+
+    /**
+     * Constructor
+     *
+     * @param maxSize   The maximum number of resource paths to keep entries for
+     * @param ttlMillis The time after which entries expire, in milliseconds
+     */
+    public AuthorizationCache(int maxSize, long ttlMillis) {
+        _maxSize = maxSize;
+        _ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Return the current generation of the cache, which advances on every invalidation; must be
+     * obtained before computing a value to cache
+     *
+     * @return The current generation
+     */
+    public long getGeneration() {
+        return _clock.get();
+    }
+
+    /**
+     * Retrieve a cached authorization decision
+     *
+     * @param userName The user name
+     * @param resPath  The resource path
+     * @param action   The action
+     * @return The cached decision, or null if not cached or expired
+     */
+    public Boolean getDecision(String userName, String resPath, String action) {
+        PathEntry entry = getEntry(resPath);
+        return (entry != null) ? getValue(entry.decisions.get(getDecisionKey(userName, action)))
+                               : null;
+    }
+
+    /**
+     * Cache an authorization decision
+     *
+     * @param userName   The user name
+     * @param resPath    The resource path
+     * @param action     The action
+     * @param authorized The decision
+     * @param generation The generation of the cache when the decision was computed
+     */
+    public void putDecision(String userName, String resPath, String action, boolean authorized,
+                            long generation) {
+        if (isInvalidatedSince(resPath, generation)) {
+            return;
+        }
+
+        String key = getDecisionKey(userName, action);
+        CachedValue cached = new CachedValue(authorized, System.currentTimeMillis() + _ttlMillis);
+        PathEntry entry = getOrCreateEntry(resPath);
+        entry.decisions.put(key, cached);
+
+        // an invalidation may have happened while storing the decision
+        if (isInvalidatedSince(resPath, generation)) {
+            entry.decisions.remove(key, cached);
+        }
+    }
+
+    /**
+     * Retrieve the cached "public" flag of a resource
+     *
+     * @param resPath The resource path
+     * @return The cached flag, or null if not cached or expired
+     */
+    public Boolean getPublic(String resPath) {
+        PathEntry entry = getEntry(resPath);
+        return (entry != null) ? getValue(entry.isPublic) : null;
+    }
+
+    /**
+     * Cache the "public" flag of a resource
+     *
+     * @param resPath    The resource path
+     * @param isPublic   The flag
+     * @param generation The generation of the cache when the flag was retrieved
+     */
+    public void putPublic(String resPath, boolean isPublic, long generation) {
+        if (isInvalidatedSince(resPath, generation)) {
+            return;
+        }
+
+        CachedValue cached = new CachedValue(isPublic, System.currentTimeMillis() + _ttlMillis);
+        PathEntry entry = getOrCreateEntry(resPath);
+        entry.isPublic = cached;
+
+        // an invalidation may have happened while storing the flag
+        if (isInvalidatedSince(resPath, generation) && entry.isPublic == cached) {
+            entry.isPublic = null;
+        }
+    }
+
+    /**
+     * Remove the cached entries for a resource and, since permissions are inherited, for all
+     * the resources below it
+     *
+     * @param resPath The resource path
+     */
+    public void invalidate(String resPath) {
+        String path = normalize(resPath);
+        String prefix = path.endsWith("/") ? path : path + "/";
+
+        // record the invalidation before removing the entries, so that values being stored
+        // concurrently are either removed or see the invalidation
+        PathEntry invalidated = new PathEntry();
+        invalidated.invalidation = _clock.incrementAndGet();
+        if (_entries.put(path, invalidated) == null) {
+            _size.incrementAndGet();
+        }
+
+        for (String key : _entries.subMap(prefix, prefix + '\uffff').keySet()) {
+            PathEntry entry = _entries.remove(key);
+            if (entry != null) {
+                _size.decrementAndGet();
+            }
+        }
+
+        evictIfFull();
+    }
+
+    private PathEntry getEntry(String resPath) {
+        PathEntry entry = _entries.get(normalize(resPath));
+        if (entry != null) {
+            entry.accessed = true;
+        }
+
+        return entry;
+    }
+
+    private PathEntry getOrCreateEntry(String resPath) {
+        String path = normalize(resPath);
+        PathEntry entry = _entries.get(path);
+        if (entry == null) {
+            PathEntry created = new PathEntry();
+            entry = _entries.putIfAbsent(path, created);
+            if (entry == null) {
+                entry = created;
+                _size.incrementAndGet();
+                evictIfFull();
+            }
+        }
+
+        entry.accessed = true;
+        return entry;
+    }
+
+    /**
+     * Checks whether a path, or a path above it, was invalidated after the given generation
+     */
+    private boolean isInvalidatedSince(String resPath, long generation) {
+        if (_evictedInvalidation.get() > generation) {
+            return true;
+        }
+
+        String path = normalize(resPath);
+        while (true) {
+            PathEntry entry = _entries.get(path);
+            if (entry != null && entry.invalidation > generation) {
+                return true;
+            }
+
+            int sep = path.lastIndexOf('/');
+            if (sep < 0 || path.equals("/")) {
+                return false;
+            }
+            path = (sep == 0) ? "/" : path.substring(0, sep);
+        }
+    }
+
+    /**
+     * Evict entries while the cache holds more than the maximum number of paths, sweeping
+     * through the paths in order and sparing (once) the entries accessed since the last sweep
+     */
+    private void evictIfFull() {
+        int skips = 0;
+        while (_size.get() > _maxSize) {
+            String cursor = _evictionCursor;
+            Map.Entry<String, PathEntry> next =
+                (cursor != null) ? _entries.higherEntry(cursor) : null;
+            if (next == null) {
+                next = _entries.firstEntry();
+                if (next == null) {
+                    return;
+                }
+            }
+            _evictionCursor = next.getKey();
+
+            PathEntry entry = next.getValue();
+            if (entry.accessed && skips < MAX_EVICTION_SKIPS) {
+                entry.accessed = false;
+                skips++;
+                continue;
+            }
+
+            if (_entries.remove(next.getKey(), entry)) {
+                _size.decrementAndGet();
+                recordEvictedInvalidation(entry.invalidation);
+            }
+        }
+    }
+
+    private void recordEvictedInvalidation(long invalidation) {
+        long evicted;
+        while (invalidation > (evicted = _evictedInvalidation.get())) {
+            if (_evictedInvalidation.compareAndSet(evicted, invalidation)) {
+                return;
+            }
+        }
+    }
+
+    private static Boolean getValue(CachedValue cached) {
+        return (cached != null && cached.expires > System.currentTimeMillis()) ? cached.value
+                                                                               : null;
+    }
+
+    private static String normalize(String resPath) {
+        return (resPath.length() > 1 && resPath.endsWith("/"))
+            ? resPath.substring(0, resPath.length() - 1) : resPath;
+    }
+
+    private static String getDecisionKey(String userName, String action) {
+        return userName + '\0' + action;
+    }
+
+    private static class PathEntry {
+
+        final ConcurrentMap<String, CachedValue> decisions = new ConcurrentHashMap<>();
+        volatile CachedValue isPublic;
+        // the generation at which the path was last invalidated, if it was
+        volatile long invalidation;
+        volatile boolean accessed;
+    }
+
+    private static class CachedValue {
+
+        final boolean value;
+        final long expires;
+
+        CachedValue(boolean value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
+import java.util.Date;
+import java.util.List;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Variant;
+import org.wso2.carbon.registry.core.Resource;
+
+/**
+ * HTTP caching helper methods, used for answering conditional requests for workset resources
+ * without retrieving their content
+ *
+ * @author capitanu
+ */
+public class CacheUtils {
+
+    /**
+     * The representations available for worksets
+     */
+    public static final List<Variant> WORKSET_VARIANTS = Variant.mediaTypes(
+        MediaType.valueOf(HTRCMediaTypes.WORKSET_XML),
+        MediaType.valueOf(HTRCMediaTypes.WORKSET_JSON),
+        MediaType.APPLICATION_XML_TYPE,
+        MediaType.APPLICATION_JSON_TYPE
+    ).build();
+
+    /**
+     * The representations available for workset volumes
+     */
+    public static final List<Variant> VOLUME_VARIANTS = Variant.mediaTypes(
+        MediaType.valueOf(HTRCMediaTypes.VOLUME_XML),
+        MediaType.valueOf(HTRCMediaTypes.VOLUME_JSON),
+        MediaType.APPLICATION_XML_TYPE,
+        MediaType.APPLICATION_JSON_TYPE
+    ).build();
+
+    /**
+     * The plain-text representation of workset volumes
+     */
+    public static final List<Variant> TEXT_VARIANTS =
+        Variant.mediaTypes(MediaType.TEXT_PLAIN_TYPE).build();
+
+    /**
+     * The CSV representation of workset volumes
+     */
+    public static final List<Variant> CSV_VARIANTS =
+        Variant.mediaTypes(MediaType.valueOf(HTRCMediaTypes.TEXT_CSV)).build();
+
+    /**
+     * Select the representation to return for a request
+     *
+     * @param request  The request
+     * @param variants The available representations
+     * @return The representation best matching the request, or the first representation
+     * if none match
+     */
+    public static Variant selectVariant(Request request, List<Variant> variants) {
+        Variant variant = request.selectVariant(variants);
+        return (variant != null) ? variant : variants.get(0);
+    }
+
+    /**
+     * Compute the (strong) entity tag of a representation of a workset resource. The tag
+     * changes whenever the workset is written.
+     *
+     * @param resource The workset resource
+     * @param variant  The representation
+     * @return The entity tag
+     */
+    public static EntityTag getEntityTag(Resource resource, Variant variant) {
+        String revision = WorksetUtils.getRevision(resource);
+        String variantId = Integer.toHexString(variant.getMediaType().toString().hashCode());
+
+        return new EntityTag(revision + "-" + variantId);
+    }
+
+    /**
+     * Evaluate the preconditions (If-None-Match, If-Modified-Since, ...) of a request
+     * against a workset resource
+     *
+     * @param request  The request
+     * @param resource The workset resource
+     * @param variant  The representation
+     * @return The response builder to use if the preconditions result in a response (e.g. 304),
+     * or null if the representation should be sent
+     */
+    public static ResponseBuilder evaluatePreconditions(
+        Request request, Resource resource, Variant variant) {
+        EntityTag eTag = getEntityTag(resource, variant);
+        Date lastModified = resource.getLastModified();
+
+        ResponseBuilder builder = request.evaluatePreconditions(lastModified, eTag);
+        if (builder != null) {
+            builder.tag(eTag)
+                   .lastModified(lastModified)
+                   .header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Create a response for a representation of a workset resource, including the caching
+     * headers needed for subsequent conditional requests
+     *
+     * @param entity   The entity
+     * @param resource The workset resource
+     * @param variant  The representation
+     * @return The response builder
+     */
+    public static ResponseBuilder ok(Object entity, Resource resource, Variant variant) {
+        return Response.ok(entity, variant)
+                       .tag(getEntityTag(resource, variant))
+                       .lastModified(resource.getLastModified())
+                       .header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+}
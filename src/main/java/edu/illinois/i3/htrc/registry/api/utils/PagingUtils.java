@@ -0,0 +1,187 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Keyset pagination helper methods. Worksets are ordered by name, then by the path of the
+ * collection containing them, and a page is identified by an opaque cursor encoding the path of
+ * the last workset in the previous page. Search results, which are ordered by relevance, are
+ * paged by offset instead.
+ *
+ * @author capitanu
+ */
+public class PagingUtils {
+
+    /**
+     * The query parameter holding the cursor
+     */
+    public static final String CURSOR_PARAM = "after";
+
+    /**
+     * The query parameter holding the offset of the first result in a page (search results)
+     */
+    public static final String OFFSET_PARAM = "offset";
+
+    /**
+     * The response header holding the total number of results (search results)
+     */
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    /**
+     * Orders workset paths by workset name, then by the path of the containing collection
+     */
+    public static final Comparator<String> WORKSET_PATH_ORDER = new Comparator<String>() {
+        public int compare(String path1, String path2) {
+            int cmp = getName(path1).compareTo(getName(path2));
+            return (cmp != 0) ? cmp : getParentPath(path1).compareTo(getParentPath(path2));
+        }
+    };
+
+    /**
+     * Encode a workset path as a cursor
+     *
+     * @param resPath The workset resource path
+     * @return The cursor
+     */
+    public static String encodeCursor(String resPath) {
+        try {
+            return DatatypeConverter.printBase64Binary(resPath.getBytes("UTF-8"))
+                .replace('+', '-').replace('/', '_').replace("=", "");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decode a cursor into a workset path
+     *
+     * @param cursor The cursor
+     * @return The workset resource path
+     * @throws IllegalArgumentException Thrown if the cursor is not valid
+     */
+    public static String decodeCursor(String cursor) {
+        StringBuilder base64 = new StringBuilder(cursor.replace('-', '+').replace('_', '/'));
+        while (base64.length() % 4 != 0) {
+            base64.append('=');
+        }
+
+        try {
+            String resPath = new String(
+                DatatypeConverter.parseBase64Binary(base64.toString()), "UTF-8");
+            if (!resPath.startsWith("/") || resPath.endsWith("/")) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+
+            return resPath;
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Select a page of workset paths
+     *
+     * @param paths   The workset paths, in any order
+     * @param after   The path of the last workset in the previous page, or null for the first page
+     * @param limit   The maximum number of worksets in a page, or null for no limit
+     * @return The page of workset paths, in {@link #WORKSET_PATH_ORDER} order
+     */
+    public static List<String> getPage(Collection<String> paths, String after, Integer limit) {
+        List<String> sortedPaths = new ArrayList<>(paths);
+        Collections.sort(sortedPaths, WORKSET_PATH_ORDER);
+
+        int start = 0;
+        if (after != null) {
+            int idx = Collections.binarySearch(sortedPaths, after, WORKSET_PATH_ORDER);
+            start = (idx >= 0) ? idx + 1 : -idx - 1;
+        }
+
+        int remaining = sortedPaths.size() - start;
+        int end = (limit != null && limit < remaining) ? start + limit : sortedPaths.size();
+
+        return new ArrayList<>(sortedPaths.subList(start, end));
+    }
+
+    /**
+     * Build the value of the HTTP Link header pointing to the next page
+     *
+     * @param uriInfo  The request URI info
+     * @param lastPath The path of the last workset in the current page
+     * @return The Link header value
+     */
+    public static String getNextLink(UriInfo uriInfo, String lastPath) {
+        URI nextUri = uriInfo.getRequestUriBuilder()
+                             .replaceQueryParam(CURSOR_PARAM, encodeCursor(lastPath))
+                             .build();
+
+        return String.format("<%s>; rel=\"next\"", nextUri);
+    }
+
+    /**
+     * Build the value of the HTTP Link header pointing to the next page, for results paged by
+     * offset
+     *
+     * @param uriInfo    The request URI info
+     * @param nextOffset The offset of the first result in the next page
+     * @return The Link header value
+     */
+    public static String getNextOffsetLink(UriInfo uriInfo, int nextOffset) {
+        URI nextUri = uriInfo.getRequestUriBuilder()
+                             .replaceQueryParam(OFFSET_PARAM, nextOffset)
+                             .build();
+
+        return String.format("<%s>; rel=\"next\"", nextUri);
+    }
+
+    /**
+     * Validate the range of volumes requested from a workset
+     *
+     * @param offset The number of volumes to skip
+     * @param limit  The maximum number of volumes to return, or null for no limit
+     * @return The 400 (Bad Request) response to return if the range is invalid, or null if it
+     * is valid
+     */
+    public static Response checkRange(int offset, Integer limit) {
+        if (offset < 0 || (limit != null && limit < 1)) {
+            String errorMsg = String.format("Invalid range: offset=%d, limit=%s", offset, limit);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieve the name of a workset from its path
+     *
+     * @param resPath The workset resource path
+     * @return The workset name
+     */
+    public static String getName(String resPath) {
+        return resPath.substring(resPath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Retrieve the path of the collection containing a workset
+     *
+     * @param resPath The workset resource path
+     * @return The path of the containing collection
+     */
+    public static String getParentPath(String resPath) {
+        int idx = resPath.lastIndexOf('/');
+        return (idx > 0) ? resPath.substring(0, idx) : "";
+    }
+}
@@ -0,0 +1,130 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.api.RegistryExtension;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.servlet.ServletContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.ActionConstants;
+
+/**
+ * Maintains the index of public worksets (the worksets readable by everyone), keyed by workset
+ * name and collection path, which is used for listing public worksets instead of resolving
+ * the registry permissions of every workset.
+ * <p>
+ * The index is updated so that it never lists a workset that is not public: worksets are
+ * removed from the index before they stop being public, and added after they become public.
+ * Should the registry update fail after a workset was removed from the index, the workset is
+ * added back. Should an update of the index fail after the registry was updated, the index can
+ * be reconciled with the registry permissions by rebuilding it.
+ *
+ * @author capitanu
+ */
+public class PublicWorksetIndex {
+
+    private static final Log Log = LogFactory.getLog(PublicWorksetIndex.class);
+
+    private static String _sqlCreate;
+    private static String _sqlClear;
+    private static String _sqlRebuild;
+    private static String _sqlInsert;
+    private static String _sqlDelete;
+
+    /**
+     * Initialize the public workset index, creating it if necessary
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @param rebuild True to rebuild the index from the registry permissions, False otherwise
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void initialize(ServletContext context, boolean rebuild) throws SQLException {
+        _sqlCreate = context.getInitParameter(Constants.WEBXML_CONFIG_PUBLIC_INDEX_CREATE_QUERY);
+        _sqlClear = context.getInitParameter(Constants.WEBXML_CONFIG_PUBLIC_INDEX_CLEAR_QUERY);
+        _sqlRebuild = context.getInitParameter(Constants.WEBXML_CONFIG_PUBLIC_INDEX_REBUILD_QUERY);
+        _sqlInsert = context.getInitParameter(Constants.WEBXML_CONFIG_PUBLIC_INDEX_INSERT_QUERY);
+        _sqlDelete = context.getInitParameter(Constants.WEBXML_CONFIG_PUBLIC_INDEX_DELETE_QUERY);
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(_sqlCreate);
+        }
+
+        if (rebuild) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild the public workset index from the registry permissions
+     *
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void rebuild() throws SQLException {
+        Log.info("Rebuilding the public worksets index");
+
+        String allUsersWorksetsPathsSql =
+            RegistryExtension.getConfig().getUserWorksetsPath("%");
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement clearStmt = conn.prepareStatement(_sqlClear);
+                 PreparedStatement rebuildStmt = conn.prepareStatement(_sqlRebuild)) {
+                clearStmt.setInt(1, RegistryUtils.getTenantId());
+                clearStmt.executeUpdate();
+
+                rebuildStmt.setInt(1, RegistryUtils.getTenantId());
+                rebuildStmt.setString(2, allUsersWorksetsPathsSql);
+                rebuildStmt.setString(3, "everyone");
+                rebuildStmt.setString(4, ActionConstants.GET);
+                int count = rebuildStmt.executeUpdate();
+
+                conn.commit();
+                Log.info(String.format("Indexed %d public worksets", count));
+            }
+            catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Add a workset to the public workset index; must be called after the workset is made public
+     *
+     * @param resPath The workset resource path
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void add(String resPath) throws SQLException {
+        execute(_sqlInsert, resPath);
+    }
+
+    /**
+     * Remove a workset from the public workset index; must be called before the workset is
+     * made private or deleted
+     *
+     * @param resPath The workset resource path
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void remove(String resPath) throws SQLException {
+        execute(_sqlDelete, resPath);
+    }
+
+    private static void execute(String sql, String resPath) throws SQLException {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, PagingUtils.getName(resPath));
+            stmt.setString(3, PagingUtils.getParentPath(resPath));
+            stmt.executeUpdate();
+        }
+    }
+}
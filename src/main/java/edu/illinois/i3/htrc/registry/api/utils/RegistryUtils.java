@@ -1,10 +1,15 @@
 package edu.illinois.i3.htrc.registry.api.utils;
 
 import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
 import edu.illinois.i3.htrc.registry.api.exceptions.RegistryExtensionException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.config.RegistryContext;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.jdbc.dataaccess.JDBCDataAccessManager;
 import org.wso2.carbon.registry.core.service.RegistryService;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.user.api.RealmConfiguration;
@@ -21,14 +26,18 @@ import org.wso2.carbon.user.core.service.RealmService;
  */
 public class RegistryUtils {
 
+    private static RegistryContext _registryContext;
     private static RegistryService _registryService;
     private static RealmService _realmService;
     private static int _tenantId;
     private static String _adminUser;
     private static String _adminRole;
     private static String _everyoneRole;
+    private static AuthorizationCache _authCache;
 
-    public static void initialize(RegistryContext registryContext) throws RegistryException {
+    public static void initialize(RegistryContext registryContext, RegistryExtensionConfig config)
+        throws RegistryException {
+        _registryContext = registryContext;
         _registryService = registryContext.getEmbeddedRegistryService();
         _realmService = registryContext.getRealmService();
 
@@ -37,6 +46,21 @@ public class RegistryUtils {
         _adminUser = bootstrapConfig.getAdminUserName();
         _adminRole = bootstrapConfig.getAdminRoleName();
         _everyoneRole = bootstrapConfig.getEveryOneRoleName();
+
+        int authCacheSize = config.getAuthCacheSize();
+        int authCacheTtl = config.getAuthCacheTtl();
+        _authCache = (authCacheSize > 0 && authCacheTtl > 0) ?
+            new AuthorizationCache(authCacheSize, TimeUnit.SECONDS.toMillis(authCacheTtl)) :
+            null;
+    }
+
+    /**
+     * Get the data source backing the registry database
+     *
+     * @return The {@link DataSource} instance
+     */
+    public static DataSource getDataSource() {
+        return ((JDBCDataAccessManager) _registryContext.getDataAccessManager()).getDataSource();
     }
 
     /**
@@ -107,6 +131,8 @@ public class RegistryUtils {
         for (String permission : permissions) {
             authManager.authorizeRole(roleName, resPath, permission);
         }
+        // also discards the checks made while the permissions were changing
+        invalidateAuthorizations(resPath);
     }
 
     /**
@@ -142,6 +168,8 @@ public class RegistryUtils {
         for (String permission : permissions) {
             authManager.denyRole(roleName, resPath, permission);
         }
+        // also discards the checks made while the permissions were changing
+        invalidateAuthorizations(resPath);
     }
 
     /**
@@ -177,6 +205,8 @@ public class RegistryUtils {
         for (String permission : permissions) {
             authManager.clearRoleAuthorization(roleName, resPath, permission);
         }
+        // also discards the checks made while the permissions were changing
+        invalidateAuthorizations(resPath);
     }
 
     /**
@@ -190,9 +220,24 @@ public class RegistryUtils {
     public static boolean isPublicResource(
         String resPath, UserRegistry registry) throws RegistryException {
 
-        Resource resource = registry.get(resPath);
-        String sPublic = resource.getProperty(Constants.HTRC_PROP_PUBLIC);
+        if (_authCache == null) {
+            return isPublicResource(registry.get(resPath));
+        }
 
+        Boolean cached = _authCache.getPublic(resPath);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = _authCache.getGeneration();
+        boolean isPublic = isPublicResource(registry.get(resPath));
+        _authCache.putPublic(resPath, isPublic, generation);
+
+        return isPublic;
+    }
+
+    private static boolean isPublicResource(Resource resource) {
+        String sPublic = resource.getProperty(Constants.HTRC_PROP_PUBLIC);
         return Boolean.parseBoolean(sPublic);
     }
 
@@ -208,11 +253,25 @@ public class RegistryUtils {
      */
     public static boolean isAuthorized(String resPath, UserRegistry registry, String... permissions)
         throws RegistryException, UserStoreException {
-        UserRealm userRealm = registry.getUserRealm();
-        AuthorizationManager authManager = userRealm.getAuthorizationManager();
+        String userName = registry.getUserName();
+        AuthorizationManager authManager = null;
 
         for (String permission : permissions) {
-            if (!authManager.isRoleAuthorized(registry.getUserName(), resPath, permission)) {
+            Boolean authorized =
+                (_authCache != null) ? _authCache.getDecision(userName, resPath, permission) : null;
+
+            if (authorized == null) {
+                if (authManager == null) {
+                    authManager = registry.getUserRealm().getAuthorizationManager();
+                }
+                long generation = (_authCache != null) ? _authCache.getGeneration() : 0;
+                authorized = authManager.isRoleAuthorized(userName, resPath, permission);
+                if (_authCache != null) {
+                    _authCache.putDecision(userName, resPath, permission, authorized, generation);
+                }
+            }
+
+            if (!authorized) {
                 return false;
             }
         }
@@ -220,6 +279,18 @@ public class RegistryUtils {
         return true;
     }
 
+    /**
+     * Remove the cached permission checks for a resource and for all the resources below it;
+     * must be called whenever the permissions or the "public" flag of a resource change
+     *
+     * @param resPath The resource path
+     */
+    public static void invalidateAuthorizations(String resPath) {
+        if (_authCache != null) {
+            _authCache.invalidate(resPath);
+        }
+    }
+
     /**
      * Retrieves the admin user name
      *
@@ -238,6 +309,26 @@ public class RegistryUtils {
         return _adminRole;
     }
 
+    /**
+     * Checks whether a user is the admin user, or has the admin role
+     *
+     * @param userName The user name
+     * @return True if the user is an administrator, False otherwise
+     * @throws RegistryException  Thrown if a registry error occurs
+     * @throws UserStoreException Thrown if a user store error occurs
+     */
+    public static boolean isAdmin(String userName) throws RegistryException, UserStoreException {
+        if (_adminUser.equals(userName)) {
+            return true;
+        }
+
+        UserStoreManager userStoreManager = getAdminRegistry()
+            .getUserRealm()
+            .getUserStoreManager();
+
+        return Arrays.asList(userStoreManager.getRoleListOfUser(userName)).contains(_adminRole);
+    }
+
     /**
      * Retrieves the "everyone" role name
      *
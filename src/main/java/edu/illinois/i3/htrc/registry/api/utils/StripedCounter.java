@@ -0,0 +1,79 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that is updated often by many threads and read rarely. Updates are spread over a
+ * number of stripes, chosen by thread, so that concurrent updates seldom contend for the same
+ * value; the value of the counter is the sum of the stripes.
+ * <p>
+ * The sum is not an atomic snapshot: updates made while it is computed may or may not be
+ * included.
+ *
+ * @author capitanu
+ */
+public class StripedCounter {
+
+    // stripes are spaced apart so that they do not share a cache line (8 longs = 64 bytes)
+    private static final int STRIDE = 8;
+
+    private final AtomicLongArray _stripes;
+    private final int _mask;
+
+    /**
+     * Constructor, creating a stripe for each available processor
+     */
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param stripes The minimum number of stripes (rounded up to a power of two)
+     */
+    public StripedCounter(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+
+        _stripes = new AtomicLongArray(size * STRIDE);
+        _mask = size - 1;
+    }
+
+    /**
+     * Add a value to the counter
+     *
+     * @param delta The value to add (may be negative)
+     */
+    public void add(long delta) {
+        if (delta != 0) {
+            int stripe = (int) Thread.currentThread().getId() & _mask;
+            _stripes.addAndGet(stripe * STRIDE, delta);
+        }
+    }
+
+    /**
+     * Return the value of the counter
+     *
+     * @return The sum of the stripes
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < _stripes.length(); i += STRIDE) {
+            sum += _stripes.get(i);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Reset the counter to zero; should only be called when the counter is not being updated
+     */
+    public void reset() {
+        for (int i = 0; i < _stripes.length(); i += STRIDE) {
+            _stripes.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletContext;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * The global dictionary of volume ids, assigning each volume id a number that is shared by all
+ * the worksets containing the volume. Numbers are assigned the first time a volume id is
+ * encoded, and never change afterwards.
+ *
+ * @author capitanu
+ */
+public class VolumeIdDictionary {
+
+    // the maximum number of parameters bound in a single IN (...) clause
+    private static final int MAX_IN_PARAMS = 500;
+
+    private static String _sqlLookup;
+    private static String _sqlReverse;
+    private static String _sqlInsert;
+
+    /**
+     * Initialize the volume id dictionary, creating it if necessary
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void initialize(ServletContext context) throws SQLException {
+        String sqlCreate =
+            context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_IDS_CREATE_QUERY);
+        _sqlLookup = context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_IDS_LOOKUP_QUERY);
+        _sqlReverse = context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_IDS_REVERSE_QUERY);
+        _sqlInsert = context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_IDS_INSERT_QUERY);
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sqlCreate);
+        }
+    }
+
+    /**
+     * Encode a set of volume ids as a bitmap of volume numbers, assigning numbers to the
+     * volume ids not yet in the dictionary
+     *
+     * @param volumeIds The volume ids
+     * @return The bitmap of volume numbers
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static RoaringBitmap encode(Collection<String> volumeIds) throws SQLException {
+        return toBitmap(assignNumbers(volumeIds).values());
+    }
+
+    /**
+     * Retrieve the numbers of a set of volume ids, assigning numbers to the volume ids not yet
+     * in the dictionary
+     *
+     * @param volumeIds The volume ids
+     * @return The map of volume id to volume number
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Map<String, Integer> assignNumbers(Collection<String> volumeIds)
+        throws SQLException {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(volumeIds));
+        Map<String, Integer> numbers = new HashMap<>(ids.size());
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            lookup(conn, _sqlLookup, ids, numbers);
+
+            if (numbers.size() < ids.size()) {
+                List<String> missingIds = new ArrayList<>(ids.size() - numbers.size());
+                for (String id : ids) {
+                    if (!numbers.containsKey(id)) {
+                        missingIds.add(id);
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(_sqlInsert)) {
+                    for (String id : missingIds) {
+                        stmt.setString(1, id);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+
+                // concurrent encoders may have assigned some of the numbers, so look them up
+                lookup(conn, _sqlLookup, missingIds, numbers);
+            }
+        }
+
+        return numbers;
+    }
+
+    /**
+     * Retrieve the numbers of a set of volume ids, without assigning numbers to the volume ids
+     * not yet in the dictionary (which are not part of any workset bitmap)
+     *
+     * @param volumeIds The volume ids
+     * @return The map of volume id to volume number, for the volume ids in the dictionary
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Map<String, Integer> lookupNumbers(Collection<String> volumeIds)
+        throws SQLException {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(volumeIds));
+        Map<String, Integer> numbers = new HashMap<>(ids.size());
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            lookup(conn, _sqlLookup, ids, numbers);
+        }
+
+        return numbers;
+    }
+
+    /**
+     * Create the bitmap of a set of volume numbers
+     *
+     * @param numbers The volume numbers
+     * @return The bitmap of volume numbers
+     */
+    public static RoaringBitmap toBitmap(Collection<Integer> numbers) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (Integer number : numbers) {
+            bitmap.add(number);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Decode a bitmap of volume numbers into volume ids
+     *
+     * @param bitmap The bitmap of volume numbers
+     * @return The volume ids
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Collection<String> decode(RoaringBitmap bitmap) throws SQLException {
+        if (bitmap.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Integer> numbers = new ArrayList<>(bitmap.getCardinality());
+        for (Integer number : bitmap) {
+            numbers.add(number);
+        }
+
+        Map<String, Integer> ids = new HashMap<>(numbers.size());
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            lookup(conn, _sqlReverse, numbers, ids);
+        }
+
+        return ids.keySet();
+    }
+
+    /**
+     * Run a dictionary query for a list of keys (volume ids or volume numbers), binding at most
+     * {@link #MAX_IN_PARAMS} keys per query, and collect the volume id to number mappings found
+     */
+    private static void lookup(Connection conn, String sql, List<?> keys,
+                               Map<String, Integer> result) throws SQLException {
+        for (int from = 0; from < keys.size(); from += MAX_IN_PARAMS) {
+            List<?> chunk = keys.subList(from, Math.min(from + MAX_IN_PARAMS, keys.size()));
+
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+
+            try (PreparedStatement stmt =
+                     conn.prepareStatement(String.format(sql, placeholders))) {
+                int i = 1;
+                for (Object key : chunk) {
+                    stmt.setObject(i++, key);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        result.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+        }
+    }
+}
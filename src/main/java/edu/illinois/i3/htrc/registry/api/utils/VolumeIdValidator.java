@@ -0,0 +1,204 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validation of HathiTrust volume ids, of the form <code>namespace.id</code>, where the
+ * namespace is a lowercase alphanumeric code starting with a letter (e.g. "mdp", "uc1"), and
+ * the id is a non-empty sequence of printable, non-whitespace characters (e.g. "39015012345678"
+ * or "ark:/13960/t3jw8t51h"). Volume ids are checked in place, without allocating, so large
+ * volume lists can be validated cheaply.
+ *
+ * @author capitanu
+ */
+public class VolumeIdValidator {
+
+    /**
+     * The maximum length of a volume id
+     */
+    public static final int MAX_VOLUME_ID_LENGTH = 255;
+
+    /**
+     * The maximum number of invalid volume ids retained when validating a stream of volume ids
+     */
+    public static final int MAX_REPORTED_INVALID_IDS = 1000;
+
+    /**
+     * Parse a volume id, returning the position of the separator between the namespace and
+     * the id
+     *
+     * @param volumeId The volume id
+     * @return The index of the '.' separating the namespace from the id, or -1 if the volume id
+     * is invalid
+     */
+    public static int getSeparatorIndex(CharSequence volumeId) {
+        if (volumeId == null) {
+            return -1;
+        }
+
+        int length = volumeId.length();
+        if (length > MAX_VOLUME_ID_LENGTH) {
+            return -1;
+        }
+
+        int separator = 0;
+        while (separator < length && volumeId.charAt(separator) != '.') {
+            char c = volumeId.charAt(separator);
+            boolean isLetter = c >= 'a' && c <= 'z';
+            boolean isDigit = c >= '0' && c <= '9';
+            if (!isLetter && !(isDigit && separator > 0)) {
+                return -1;
+            }
+            separator++;
+        }
+
+        // the namespace and the id must both be non-empty
+        if (separator == 0 || separator >= length - 1) {
+            return -1;
+        }
+
+        for (int i = separator + 1; i < length; i++) {
+            char c = volumeId.charAt(i);
+            if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+                return -1;
+            }
+        }
+
+        return separator;
+    }
+
+    /**
+     * Checks whether a volume id is valid
+     *
+     * @param volumeId The volume id
+     * @return True if valid, False otherwise
+     */
+    public static boolean isValid(CharSequence volumeId) {
+        return getSeparatorIndex(volumeId) >= 0;
+    }
+
+    /**
+     * Return the invalid volume ids of a list of volumes
+     *
+     * @param volumes The volumes
+     * @return The invalid volume ids, in order (empty if all volume ids are valid)
+     */
+    public static List<String> getInvalidVolumeIds(List<Volume> volumes) {
+        List<String> invalidIds = new ArrayList<>();
+        for (Volume volume : volumes) {
+            String volumeId = volume.getId();
+            if (!isValid(volumeId)) {
+                invalidIds.add(String.valueOf(volumeId));
+            }
+        }
+
+        return invalidIds;
+    }
+
+    /**
+     * Validate a list of volume ids read from a stream, one volume id per line; blank lines
+     * are ignored. The volume ids are checked as they are read, reusing a single buffer, so
+     * memory use is bounded whatever the size of the stream: characters past the maximum
+     * volume id length are not kept (the volume id being invalid already), and only the first
+     * {@link #MAX_REPORTED_INVALID_IDS} invalid volume ids are retained.
+     *
+     * @param reader The reader providing the volume ids (not closed by this method)
+     * @return The outcome of the validation
+     * @throws IOException Thrown if the volume ids cannot be read
+     */
+    public static ValidationResult validate(Reader reader) throws IOException {
+        char[] buffer = new char[8192];
+        StringBuilder volumeId = new StringBuilder(MAX_VOLUME_ID_LENGTH + 1);
+        ValidationResult result = new ValidationResult();
+        int read;
+
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    result.check(volumeId);
+                    volumeId.setLength(0);
+                }
+                else if (c != '\r' && volumeId.length() <= MAX_VOLUME_ID_LENGTH) {
+                    volumeId.append(c);
+                }
+            }
+        }
+        result.check(volumeId);
+
+        return result;
+    }
+
+    /**
+     * Return the error message reporting a list of invalid volume ids
+     *
+     * @param invalidIds The invalid volume ids
+     * @return The error message
+     */
+    public static String getErrorMessage(List<String> invalidIds) {
+        StringBuilder sb = new StringBuilder()
+            .append(String.format("Invalid volume IDs detected (%d):", invalidIds.size()));
+        for (String volumeId : invalidIds) {
+            sb.append('\n').append(volumeId);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * The outcome of validating a stream of volume ids
+     */
+    public static class ValidationResult {
+
+        private final List<String> _invalidIds = new ArrayList<>();
+        private int _count;
+        private int _invalidCount;
+
+        /**
+         * Return the number of volume ids checked
+         *
+         * @return The number of volume ids checked
+         */
+        public int getCount() {
+            return _count;
+        }
+
+        /**
+         * Return the number of invalid volume ids
+         *
+         * @return The number of invalid volume ids
+         */
+        public int getInvalidCount() {
+            return _invalidCount;
+        }
+
+        /**
+         * Return the invalid volume ids, in order, up to {@link #MAX_REPORTED_INVALID_IDS} of
+         * them; volume ids longer than the maximum length are cut short, and end with "..."
+         *
+         * @return The invalid volume ids retained
+         */
+        public List<String> getInvalidIds() {
+            return _invalidIds;
+        }
+
+        private void check(StringBuilder volumeId) {
+            if (volumeId.length() == 0) {
+                return;
+            }
+
+            _count++;
+            if (!isValid(volumeId)) {
+                _invalidCount++;
+                if (_invalidIds.size() < MAX_REPORTED_INVALID_IDS) {
+                    _invalidIds.add(volumeId.length() > MAX_VOLUME_ID_LENGTH
+                                        ? volumeId + "..." : volumeId.toString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull-based reader over serialized workset volumes. Volumes are unmarshalled one at a time
+ * as the reader is advanced, so the volume list is never held in memory as a whole. The
+ * volumes can be spread over several consecutive streams (e.g. the segments of a workset),
+ * which are opened as the reader reaches them.
+ *
+ * @author capitanu
+ */
+public class VolumeReader implements Closeable {
+
+    private static final String VOLUME_ELEMENT = "volume";
+    private static final XMLInputFactory xmlInputFactory;
+
+    static {
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final StreamSource _streamSource;
+    private final Unmarshaller _unmarshaller;
+    private InputStream _stream;
+    private XMLStreamReader _xmlReader;
+    private int _remaining = -1;
+
+    /**
+     * Constructor
+     *
+     * @param stream       The stream containing the serialized volumes
+     * @param unmarshaller The unmarshaller used for reading individual volumes
+     * @throws JAXBException Thrown if the stream cannot be parsed
+     */
+    VolumeReader(final InputStream stream, Unmarshaller unmarshaller) throws JAXBException {
+        this(new StreamSource() {
+            private boolean _consumed;
+
+            public InputStream nextStream() {
+                if (_consumed) {
+                    return null;
+                }
+                _consumed = true;
+
+                return stream;
+            }
+        }, unmarshaller);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param streamSource The source of the streams containing the serialized volumes
+     * @param unmarshaller The unmarshaller used for reading individual volumes
+     * @throws JAXBException Thrown if the first stream cannot be opened or parsed
+     */
+    VolumeReader(StreamSource streamSource, Unmarshaller unmarshaller) throws JAXBException {
+        _streamSource = streamSource;
+        _unmarshaller = unmarshaller;
+
+        nextStream();
+    }
+
+    /**
+     * Read the next volume
+     *
+     * @return The next volume, or null if there are no more volumes
+     * @throws JAXBException Thrown if a de-serialization error occurs
+     */
+    public Volume read() throws JAXBException {
+        if (_remaining == 0 || !nextVolume()) {
+            return null;
+        }
+
+        if (_remaining > 0) {
+            _remaining--;
+        }
+
+        // leaves the reader positioned right after the volume end tag
+        return _unmarshaller.unmarshal(_xmlReader, Volume.class).getValue();
+    }
+
+    /**
+     * Skip volumes without de-serializing them
+     *
+     * @param count The number of volumes to skip
+     * @return The number of volumes skipped, which is less than the requested number only
+     * if there are no more volumes
+     * @throws JAXBException Thrown if a de-serialization error occurs
+     */
+    public int skip(int count) throws JAXBException {
+        int skipped = 0;
+
+        try {
+            while (skipped < count && nextVolume()) {
+                // leaves the reader positioned on the volume end tag
+                int depth = 1;
+                while (depth > 0) {
+                    int event = _xmlReader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                    }
+                    else if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                    }
+                }
+                skipped++;
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new JAXBException("Cannot parse workset content", e);
+        }
+
+        return skipped;
+    }
+
+    /**
+     * Limit the number of volumes returned by subsequent reads
+     *
+     * @param limit The maximum number of volumes to read
+     */
+    void setLimit(int limit) {
+        _remaining = limit;
+    }
+
+    /**
+     * Advance to the start tag of the next volume, opening the next stream when the current
+     * one is exhausted
+     *
+     * @return True if positioned on the start tag of a volume, False if there are no more volumes
+     */
+    private boolean nextVolume() throws JAXBException {
+        try {
+            while (_xmlReader != null) {
+                while (_xmlReader.hasNext()) {
+                    if (_xmlReader.isStartElement() &&
+                        VOLUME_ELEMENT.equals(_xmlReader.getLocalName())) {
+                        return true;
+                    }
+
+                    _xmlReader.next();
+                }
+
+                closeStream();
+                nextStream();
+            }
+
+            return false;
+        }
+        catch (XMLStreamException | IOException e) {
+            throw new JAXBException("Cannot parse workset content", e);
+        }
+    }
+
+    /**
+     * @see Closeable#close()
+     */
+    public void close() throws IOException {
+        closeStream();
+    }
+
+    private void nextStream() throws JAXBException {
+        _stream = _streamSource.nextStream();
+        if (_stream == null) {
+            return;
+        }
+
+        try {
+            _xmlReader = xmlInputFactory.createXMLStreamReader(_stream);
+        }
+        catch (XMLStreamException e) {
+            try {
+                closeStream();
+            }
+            catch (IOException ignored) {
+            }
+            throw new JAXBException("Cannot parse workset content", e);
+        }
+    }
+
+    private void closeStream() throws IOException {
+        if (_stream == null) {
+            return;
+        }
+
+        try {
+            if (_xmlReader != null) {
+                _xmlReader.close();
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        finally {
+            _xmlReader = null;
+            try {
+                _stream.close();
+            }
+            finally {
+                _stream = null;
+            }
+        }
+    }
+
+    /**
+     * Supplies the consecutive streams containing the serialized volumes
+     */
+    interface StreamSource {
+
+        /**
+         * Open the next stream
+         *
+         * @return The next stream, or null if there are no more streams
+         * @throws JAXBException Thrown if the stream cannot be opened
+         */
+        InputStream nextStream() throws JAXBException;
+    }
+}
@@ -0,0 +1,94 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Push-based writer of serialized workset volumes, the counterpart of {@link VolumeReader}.
+ * Volumes are marshalled one at a time as they are written, so the volume list never has to
+ * be held in memory as a whole.
+ *
+ * @author capitanu
+ */
+public class VolumeWriter implements Closeable {
+
+    private static final String WORKSET_NAMESPACE =
+        "http://registry.htrc.i3.illinois.edu/entities/workset";
+    private static final String VOLUMES_ELEMENT = "volumes";
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+    private final OutputStream _stream;
+    private final XMLStreamWriter _xmlWriter;
+    private final Marshaller _marshaller;
+    private int _count;
+
+    /**
+     * Constructor
+     *
+     * @param stream     The stream to write the serialized volumes to
+     * @param marshaller The marshaller used for writing individual volumes
+     * @throws JAXBException Thrown if the stream cannot be written to
+     */
+    VolumeWriter(OutputStream stream, Marshaller marshaller) throws JAXBException {
+        _stream = stream;
+        _marshaller = marshaller;
+        _marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+
+        try {
+            _xmlWriter = xmlOutputFactory.createXMLStreamWriter(stream, "UTF-8");
+            _xmlWriter.setDefaultNamespace(WORKSET_NAMESPACE);
+            _xmlWriter.writeStartDocument("UTF-8", "1.0");
+            _xmlWriter.writeStartElement(WORKSET_NAMESPACE, VOLUMES_ELEMENT);
+            _xmlWriter.writeDefaultNamespace(WORKSET_NAMESPACE);
+        }
+        catch (XMLStreamException e) {
+            throw new JAXBException("Cannot write workset content", e);
+        }
+    }
+
+    /**
+     * Write a volume
+     *
+     * @param volume The volume
+     * @throws JAXBException Thrown if a serialization error occurs
+     */
+    public void write(Volume volume) throws JAXBException {
+        _marshaller.marshal(volume, _xmlWriter);
+        _count++;
+    }
+
+    /**
+     * Return the number of volumes written so far
+     *
+     * @return The number of volumes written
+     */
+    public int getCount() {
+        return _count;
+    }
+
+    /**
+     * Complete the serialized volumes and close the underlying stream
+     *
+     * @see Closeable#close()
+     */
+    public void close() throws IOException {
+        try {
+            _xmlWriter.writeEndElement();
+            _xmlWriter.writeEndDocument();
+            _xmlWriter.close();
+        }
+        catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        finally {
+            _stream.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import java.util.List;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * The outcome of applying a volumes delta to a workset resource (see
+ * {@link WorksetUtils#applyVolumesDelta}), holding what has to be completed once the workset
+ * resource is committed (see {@link WorksetUtils#completeVolumesDelta}), or undone if it is
+ * not (see {@link WorksetUtils#discardVolumesDelta}).
+ *
+ * @author capitanu
+ */
+public class VolumesDeltaResult {
+
+    private final int _volumeCount;
+    private final List<RoaringBitmap> _segmentBitmaps;
+    private final RoaringBitmap _addedNumbers;
+    private final RoaringBitmap _removedNumbers;
+    private final List<String> _writtenSegments;
+    private final List<String> _supersededSegments;
+
+    VolumesDeltaResult(int volumeCount, List<RoaringBitmap> segmentBitmaps,
+                       RoaringBitmap addedNumbers, RoaringBitmap removedNumbers,
+                       List<String> writtenSegments, List<String> supersededSegments) {
+        _volumeCount = volumeCount;
+        _segmentBitmaps = segmentBitmaps;
+        _addedNumbers = addedNumbers;
+        _removedNumbers = removedNumbers;
+        _writtenSegments = writtenSegments;
+        _supersededSegments = supersededSegments;
+    }
+
+    /**
+     * Return the number of volumes in the workset after applying the delta
+     *
+     * @return The number of volumes in the workset
+     */
+    public int getVolumeCount() {
+        return _volumeCount;
+    }
+
+    /**
+     * Return the bitmaps of the workset segments after applying the delta
+     *
+     * @return The bitmaps of the workset segments, in order
+     */
+    List<RoaringBitmap> getSegmentBitmaps() {
+        return _segmentBitmaps;
+    }
+
+    /**
+     * Return the numbers of the volumes the delta added to the workset
+     *
+     * @return The numbers of the added volumes
+     */
+    RoaringBitmap getAddedNumbers() {
+        return _addedNumbers;
+    }
+
+    /**
+     * Return the numbers of the volumes the delta removed from the workset
+     *
+     * @return The numbers of the removed volumes
+     */
+    RoaringBitmap getRemovedNumbers() {
+        return _removedNumbers;
+    }
+
+    /**
+     * Return the registry paths of the segments written by the delta
+     *
+     * @return The paths of the written segments
+     */
+    List<String> getWrittenSegments() {
+        return _writtenSegments;
+    }
+
+    /**
+     * Return the registry paths of the segments superseded by the delta
+     *
+     * @return The paths of the superseded segments
+     */
+    List<String> getSupersededSegments() {
+        return _supersededSegments;
+    }
+}
@@ -0,0 +1,252 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.ServletContext;
+import javax.xml.bind.JAXBException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.roaringbitmap.RoaringBitmap;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+
+/**
+ * Maintains the compressed bitmap representation of workset volumes: the set of the numbers
+ * assigned to the workset volume ids by the {@link VolumeIdDictionary}. Membership tests, set
+ * operations and counts over worksets run on their bitmaps instead of on their volume lists.
+ * <p>
+ * The volume list stored in the registry remains the authoritative workset content, since it
+ * records the order and the properties of the volumes; a workset bitmap is computed from it
+ * when first needed, and is stored along with the workset revision it was computed from. A
+ * stored bitmap is only used as long as the workset revision is unchanged, so workset writes
+ * do not need to update the stored bitmaps.
+ * <p>
+ * A bitmap is kept for each segment of a workset stored in the segmented layout (a single one
+ * for other worksets), so that the segments containing a volume can be found without reading
+ * them. Volume deltas update the segment bitmaps they change and store them under the new
+ * workset revision, so that the next delta does not have to read the whole workset.
+ *
+ * @author capitanu
+ */
+public class WorksetBitmaps {
+
+    private static final Log Log = LogFactory.getLog(WorksetBitmaps.class);
+
+    // the number of volume ids encoded at a time when computing a workset bitmap
+    private static final int ENCODE_BATCH_SIZE = 10000;
+
+    private static String _sqlSelect;
+    private static String _sqlUpsert;
+    private static String _sqlDelete;
+
+    /**
+     * Initialize the workset bitmaps store, creating it if necessary
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void initialize(ServletContext context) throws SQLException {
+        String sqlCreate =
+            context.getInitParameter(Constants.WEBXML_CONFIG_WORKSET_BITMAPS_CREATE_QUERY);
+        _sqlSelect = context.getInitParameter(Constants.WEBXML_CONFIG_WORKSET_BITMAPS_SELECT_QUERY);
+        _sqlUpsert = context.getInitParameter(Constants.WEBXML_CONFIG_WORKSET_BITMAPS_UPSERT_QUERY);
+        _sqlDelete = context.getInitParameter(Constants.WEBXML_CONFIG_WORKSET_BITMAPS_DELETE_QUERY);
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sqlCreate);
+        }
+    }
+
+    /**
+     * Return the bitmap of a workset, computing (and storing) it if the stored bitmap is
+     * missing or out of date
+     *
+     * @param resource The workset resource
+     * @return The workset bitmap
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static RoaringBitmap getBitmap(Resource resource)
+        throws SQLException, JAXBException, RegistryException {
+        return RoaringBitmap.or(getSegmentBitmaps(resource).iterator());
+    }
+
+    /**
+     * Return the bitmaps of the segments of a workset, computing (and storing) them if the
+     * stored bitmaps are missing or out of date
+     *
+     * @param resource The workset resource
+     * @return The bitmaps of the workset segments, in order (a single bitmap if the workset is
+     * not stored in the segmented layout)
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static List<RoaringBitmap> getSegmentBitmaps(Resource resource)
+        throws SQLException, JAXBException, RegistryException {
+        String resPath = resource.getPath();
+        String revision = WorksetUtils.getRevision(resource);
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(_sqlSelect)) {
+                setKey(stmt, resPath);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next() && revision.equals(rs.getString(1))) {
+                        return deserialize(rs.getBytes(2));
+                    }
+                }
+            }
+
+            Log.debug(String.format("Computing bitmap for workset: %s (revision: %s)",
+                                    resPath, revision));
+
+            List<RoaringBitmap> bitmaps = computeSegmentBitmaps(resource);
+            put(conn, resPath, revision, bitmaps);
+
+            return bitmaps;
+        }
+    }
+
+    /**
+     * Store the bitmaps of the segments of a workset, as updated for a new workset revision
+     *
+     * @param resPath  The workset resource path
+     * @param revision The workset revision the bitmaps correspond to
+     * @param bitmaps  The bitmaps of the workset segments, in order
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void putSegmentBitmaps(String resPath, String revision,
+                                         List<RoaringBitmap> bitmaps) throws SQLException {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            put(conn, resPath, revision, bitmaps);
+        }
+    }
+
+    /**
+     * Remove the stored bitmap of a workset; should be called after the workset is deleted.
+     * Failures are logged rather than reported, as a leftover bitmap is never used for a
+     * workset re-created at the same path, whose revision differs.
+     *
+     * @param resPath The workset resource path
+     */
+    public static void remove(String resPath) {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(_sqlDelete)) {
+            setKey(stmt, resPath);
+            stmt.executeUpdate();
+        }
+        catch (SQLException e) {
+            Log.warn("Could not remove the bitmap of workset: " + resPath, e);
+        }
+    }
+
+    private static void put(Connection conn, String resPath, String revision,
+                            List<RoaringBitmap> bitmaps) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(_sqlUpsert)) {
+            setKey(stmt, resPath);
+            stmt.setString(4, revision);
+            stmt.setBytes(5, serialize(bitmaps));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static List<RoaringBitmap> computeSegmentBitmaps(Resource resource)
+        throws SQLException, JAXBException, RegistryException {
+        WorksetManifest manifest = WorksetUtils.getWorksetManifest(resource);
+        int segmentCount = (manifest != null) ? manifest.getSegmentCount() : 1;
+        List<RoaringBitmap> bitmaps = new ArrayList<>(segmentCount);
+
+        try (VolumeReader reader = WorksetUtils.openWorksetVolumesReader(resource)) {
+            for (int i = 0; i < segmentCount; i++) {
+                int volumeCount = (manifest != null) ? manifest.getVolumeCount(i) : -1;
+                bitmaps.add(computeBitmap(reader, volumeCount));
+            }
+        }
+        catch (IOException e) {
+            throw new RegistryException("Error closing resource stream for: "
+                                            + resource.getPath(), e);
+        }
+
+        return bitmaps;
+    }
+
+    /**
+     * Compute the bitmap of the next volumes read, up to a given number of volumes (or all the
+     * remaining volumes, if negative)
+     */
+    private static RoaringBitmap computeBitmap(VolumeReader reader, int volumeCount)
+        throws SQLException, JAXBException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        List<String> ids = new ArrayList<>(ENCODE_BATCH_SIZE);
+
+        Volume volume;
+        int count = 0;
+        while (reader != null && count++ != volumeCount && (volume = reader.read()) != null) {
+            ids.add(volume.getId());
+            if (ids.size() == ENCODE_BATCH_SIZE) {
+                bitmap.or(VolumeIdDictionary.encode(ids));
+                ids.clear();
+            }
+        }
+
+        if (!ids.isEmpty()) {
+            bitmap.or(VolumeIdDictionary.encode(ids));
+        }
+        bitmap.runOptimize();
+
+        return bitmap;
+    }
+
+    private static void setKey(PreparedStatement stmt, String resPath) throws SQLException {
+        stmt.setInt(1, RegistryUtils.getTenantId());
+        stmt.setString(2, PagingUtils.getName(resPath));
+        stmt.setString(3, PagingUtils.getParentPath(resPath));
+    }
+
+    private static byte[] serialize(List<RoaringBitmap> bitmaps) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(bitmaps.size());
+            for (RoaringBitmap bitmap : bitmaps) {
+                bitmap.serialize(out);
+            }
+        }
+        catch (IOException e) {
+            // not possible when writing to memory
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static List<RoaringBitmap> deserialize(byte[] bytes) throws SQLException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int count = in.readInt();
+            List<RoaringBitmap> bitmaps = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                RoaringBitmap bitmap = new RoaringBitmap();
+                bitmap.deserialize(in);
+                bitmaps.add(bitmap);
+            }
+
+            return bitmaps;
+        }
+        catch (IOException e) {
+            throw new SQLException("Invalid workset bitmap", e);
+        }
+    }
+}
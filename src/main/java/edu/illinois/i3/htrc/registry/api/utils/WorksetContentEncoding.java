@@ -0,0 +1,122 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The encodings used for storing workset content in the registry
+ *
+ * @author capitanu
+ */
+public enum WorksetContentEncoding {
+
+    /**
+     * Indented XML (the encoding used by earlier releases)
+     */
+    XML("xml", true),
+
+    /**
+     * Deflate-compressed, non-indented XML
+     */
+    DEFLATE("deflate", false);
+
+    private final String _name;
+    private final boolean _formatted;
+
+    WorksetContentEncoding(String name, boolean formatted) {
+        _name = name;
+        _formatted = formatted;
+    }
+
+    /**
+     * Return the encoding name, as recorded in the workset resource properties
+     *
+     * @return The encoding name
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Checks whether the XML written with this encoding should be indented
+     *
+     * @return True if the XML should be indented, False otherwise
+     */
+    public boolean isFormatted() {
+        return _formatted;
+    }
+
+    /**
+     * Wrap a stream so that data written to it is encoded with this encoding
+     *
+     * @param out The stream to wrap
+     * @return The encoding stream
+     */
+    public OutputStream encode(OutputStream out) {
+        switch (this) {
+            case DEFLATE:
+                return new DeflaterOutputStream(out);
+
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Wrap a stream so that data read from it is decoded with this encoding
+     *
+     * @param in The stream to wrap
+     * @return The decoding stream
+     */
+    public InputStream decode(InputStream in) {
+        switch (this) {
+            case DEFLATE:
+                return new InflaterInputStream(in);
+
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Return the encoding with the given name
+     *
+     * @param name The encoding name
+     * @return The encoding, or null if no encoding exists with the given name
+     */
+    public static WorksetContentEncoding forName(String name) {
+        for (WorksetContentEncoding encoding : values()) {
+            if (encoding._name.equalsIgnoreCase(name)) {
+                return encoding;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Determine the encoding of a content stream by looking at its first bytes; the stream
+     * position is left unchanged
+     *
+     * @param in The content stream (must support mark/reset)
+     * @return The detected encoding
+     * @throws IOException Thrown if an error occurs reading from the stream
+     */
+    public static WorksetContentEncoding detect(BufferedInputStream in) throws IOException {
+        in.mark(2);
+        int b0 = in.read();
+        int b1 = in.read();
+        in.reset();
+
+        // zlib header: CM=8 (deflate) in the low nibble, and the 16-bit header is a multiple of 31
+        if (b0 != -1 && b1 != -1 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0) {
+            return DEFLATE;
+        }
+
+        return XML;
+    }
+}
@@ -0,0 +1,272 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.api.RegistryExtension;
+import edu.illinois.i3.htrc.registry.entities.workset.UserWorksetCount;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetSize;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetStats;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.ServletContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Resource;
+
+/**
+ * Maintains the workset statistics: the number of worksets (in total, public, private, and per
+ * user), the total number of volumes, and the largest worksets. The statistics are loaded from
+ * the registry database on startup, and kept up to date as worksets are written and deleted,
+ * from the volume count property and the public flag of each workset.
+ * <p>
+ * The totals are kept in {@link StripedCounter}s, so that concurrent workset writes do not
+ * contend for them. The volume count and public flag last recorded for each workset are kept
+ * as well, from which the changes to the totals are computed, and the largest worksets are
+ * found when the statistics are requested.
+ *
+ * @author capitanu
+ */
+public class WorksetCounters {
+
+    /**
+     * The maximum number of largest worksets that can be requested
+     */
+    public static final int MAX_TOP = 1000;
+
+    private static final Log Log = LogFactory.getLog(WorksetCounters.class);
+
+    private static final Comparator<Map.Entry<String, WorksetEntry>> SIZE_ORDER =
+        new Comparator<Map.Entry<String, WorksetEntry>>() {
+            @Override
+            public int compare(Map.Entry<String, WorksetEntry> e1,
+                               Map.Entry<String, WorksetEntry> e2) {
+                return Integer.compare(e1.getValue().volumeCount, e2.getValue().volumeCount);
+            }
+        };
+
+    private static final ConcurrentMap<String, WorksetEntry> _worksets =
+        new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, AtomicLong> _userWorksetCounts =
+        new ConcurrentHashMap<>();
+    private static final StripedCounter _worksetCount = new StripedCounter();
+    private static final StripedCounter _publicWorksetCount = new StripedCounter();
+    private static final StripedCounter _volumeCount = new StripedCounter();
+
+    /**
+     * Initialize the workset statistics from the registry database; must be called after the
+     * public worksets index is initialized
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void initialize(ServletContext context) throws SQLException {
+        String sqlStats = context.getInitParameter(Constants.WEBXML_CONFIG_WORKSET_STATS_QUERY);
+        String allUsersWorksetsPathsSql =
+            RegistryExtension.getConfig().getUserWorksetsPath("%");
+
+        _worksets.clear();
+        _userWorksetCounts.clear();
+        _worksetCount.reset();
+        _publicWorksetCount.reset();
+        _volumeCount.reset();
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sqlStats)) {
+            stmt.setString(1, Constants.HTRC_PROP_VOLCOUNT);
+            stmt.setInt(2, RegistryUtils.getTenantId());
+            stmt.setString(3, allUsersWorksetsPathsSql);
+
+            try (ResultSet results = stmt.executeQuery()) {
+                while (results.next()) {
+                    String resPath =
+                        results.getString("WS_PARENT_PATH") + "/" + results.getString("WS_NAME");
+                    int volumeCount = parseVolumeCount(results.getString("WS_VOLUME_COUNT"));
+                    record(resPath, volumeCount, results.getBoolean("WS_PUBLIC"));
+                }
+            }
+        }
+
+        Log.info(String.format("Loaded the statistics of %d worksets", _worksets.size()));
+    }
+
+    /**
+     * Record a workset, after it was created or updated
+     *
+     * @param resPath  The workset resource path
+     * @param resource The workset resource, as committed to the registry
+     * @param isPublic True if the workset is public, False otherwise
+     */
+    public static void record(String resPath, Resource resource, boolean isPublic) {
+        int volumeCount = parseVolumeCount(resource.getProperty(Constants.HTRC_PROP_VOLCOUNT));
+        record(resPath, volumeCount, isPublic);
+    }
+
+    /**
+     * Record the new volume count of a workset, after its volumes were updated
+     *
+     * @param resPath     The workset resource path
+     * @param volumeCount The workset volume count
+     */
+    public static void recordVolumeCount(String resPath, int volumeCount) {
+        while (true) {
+            WorksetEntry previous = _worksets.get(resPath);
+            if (previous == null) {
+                // deleted meanwhile (every workset is recorded when created)
+                return;
+            }
+
+            WorksetEntry entry = new WorksetEntry(volumeCount, previous.isPublic);
+            if (_worksets.replace(resPath, previous, entry)) {
+                _volumeCount.add(entry.volumeCount - previous.volumeCount);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove a workset, after it was deleted
+     *
+     * @param resPath The workset resource path
+     */
+    public static void remove(String resPath) {
+        WorksetEntry previous = _worksets.remove(resPath);
+        if (previous != null) {
+            apply(resPath, previous, -1);
+        }
+    }
+
+    /**
+     * Create the entity holding the current workset statistics
+     *
+     * @param top The number of largest worksets to include
+     * @return The workset statistics
+     */
+    public static WorksetStats getStats(int top) {
+        WorksetStats stats = new WorksetStats();
+
+        long worksetCount = _worksetCount.sum();
+        long publicWorksetCount = _publicWorksetCount.sum();
+        stats.setWorksetCount(worksetCount);
+        stats.setPublicWorksetCount(publicWorksetCount);
+        stats.setPrivateWorksetCount(worksetCount - publicWorksetCount);
+        stats.setVolumeCount(_volumeCount.sum());
+
+        List<String> users = new ArrayList<>(_userWorksetCounts.keySet());
+        Collections.sort(users);
+        for (String user : users) {
+            long count = _userWorksetCounts.get(user).get();
+            if (count > 0) {
+                UserWorksetCount userWorksetCount = new UserWorksetCount();
+                userWorksetCount.setUser(user);
+                userWorksetCount.setWorksetCount(count);
+                stats.getUserWorksetCounts().add(userWorksetCount);
+            }
+        }
+
+        // keep the largest worksets seen so far, smallest first
+        PriorityQueue<Map.Entry<String, WorksetEntry>> largest =
+            new PriorityQueue<>(Math.max(top, 1), SIZE_ORDER);
+        if (top > 0) {
+            for (Map.Entry<String, WorksetEntry> entry : _worksets.entrySet()) {
+                if (largest.size() < top) {
+                    largest.add(entry);
+                }
+                else if (SIZE_ORDER.compare(entry, largest.peek()) > 0) {
+                    largest.poll();
+                    largest.add(entry);
+                }
+            }
+        }
+
+        List<WorksetSize> largestWorksets = new ArrayList<>(largest.size());
+        while (!largest.isEmpty()) {
+            Map.Entry<String, WorksetEntry> entry = largest.poll();
+            WorksetSize worksetSize = new WorksetSize();
+            worksetSize.setName(PagingUtils.getName(entry.getKey()));
+            worksetSize.setAuthor(getUser(PagingUtils.getParentPath(entry.getKey())));
+            worksetSize.setVolumeCount(entry.getValue().volumeCount);
+            largestWorksets.add(worksetSize);
+        }
+        Collections.reverse(largestWorksets);
+        stats.getLargestWorksets().addAll(largestWorksets);
+
+        return stats;
+    }
+
+    private static void record(String resPath, int volumeCount, boolean isPublic) {
+        WorksetEntry entry = new WorksetEntry(volumeCount, isPublic);
+        WorksetEntry previous = _worksets.put(resPath, entry);
+        if (previous != null) {
+            apply(resPath, previous, -1);
+        }
+        apply(resPath, entry, 1);
+    }
+
+    private static void apply(String resPath, WorksetEntry entry, int sign) {
+        _worksetCount.add(sign);
+        _volumeCount.add(sign * entry.volumeCount);
+        if (entry.isPublic) {
+            _publicWorksetCount.add(sign);
+        }
+
+        String user = getUser(PagingUtils.getParentPath(resPath));
+        AtomicLong userWorksetCount = _userWorksetCounts.get(user);
+        if (userWorksetCount == null) {
+            AtomicLong newCount = new AtomicLong();
+            userWorksetCount = _userWorksetCounts.putIfAbsent(user, newCount);
+            if (userWorksetCount == null) {
+                userWorksetCount = newCount;
+            }
+        }
+        userWorksetCount.addAndGet(sign);
+    }
+
+    /**
+     * Retrieve the name of the user owning a workset collection, given the configured location
+     * of the user worksets
+     */
+    private static String getUser(String collectionPath) {
+        String pattern = RegistryExtension.getConfig().getUserWorksetsPath("%s");
+        int idx = pattern.indexOf("%s");
+        String prefix = pattern.substring(0, idx);
+        String suffix = pattern.substring(idx + 2);
+
+        if (collectionPath.length() >= prefix.length() + suffix.length() &&
+            collectionPath.startsWith(prefix) && collectionPath.endsWith(suffix)) {
+            return collectionPath.substring(
+                prefix.length(), collectionPath.length() - suffix.length());
+        }
+
+        return collectionPath;
+    }
+
+    private static int parseVolumeCount(String sVolCount) {
+        try {
+            return (sVolCount != null) ? Math.max(Integer.parseInt(sVolCount), 0) : 0;
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static class WorksetEntry {
+
+        private final int volumeCount;
+        private final boolean isPublic;
+
+        WorksetEntry(int volumeCount, boolean isPublic) {
+            this.volumeCount = volumeCount;
+            this.isPublic = isPublic;
+        }
+    }
+}
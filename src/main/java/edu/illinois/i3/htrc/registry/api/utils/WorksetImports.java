@@ -0,0 +1,209 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import edu.illinois.i3.htrc.registry.entities.workset.Workset;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetContent;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetImport;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetImportStatus;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.bind.Marshaller;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+
+/**
+ * Asynchronous workset imports. Imports are processed by a bounded pool of background threads,
+ * so that storing large worksets neither holds a request thread nor causes client timeouts;
+ * the status and progress of each import is kept in memory, keyed by the workset resource
+ * path, until some time after the import is finished.
+ *
+ * @author capitanu
+ */
+public class WorksetImports {
+
+    private static final Log Log = LogFactory.getLog(WorksetImports.class);
+    private static final ConcurrentMap<String, ImportJob> _jobs = new ConcurrentHashMap<>();
+    private static ThreadPoolExecutor _executor;
+    private static long _retentionMillis;
+
+    /**
+     * Initialize the workset imports according to the registry extension configuration
+     *
+     * @param config The registry extension configuration
+     */
+    public static void initialize(RegistryExtensionConfig config) {
+        int threads = config.getWorksetImportThreads();
+        _executor = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(config.getWorksetImportQueueSize()),
+            new WorksetUtils.DaemonThreadFactory("workset-import"));
+        _retentionMillis = TimeUnit.MINUTES.toMillis(config.getWorksetImportRetention());
+    }
+
+    /**
+     * Stop processing workset imports
+     */
+    public static void shutdown() {
+        if (_executor != null) {
+            _executor.shutdownNow();
+            _executor = null;
+        }
+    }
+
+    /**
+     * Submit a workset import
+     *
+     * @param workset  The workset
+     * @param resPath  The workset resource path
+     * @param isPublic True to make the workset "public" (shared with everyone), False otherwise
+     * @param userName The user importing the workset
+     * @return The import status, or null if an import of the workset is already in progress
+     * @throws RejectedExecutionException Thrown if too many imports are waiting to be processed
+     */
+    public static WorksetImport submit(Workset workset, String resPath, boolean isPublic,
+                                       String userName) {
+        purgeFinished();
+
+        ImportJob job = new ImportJob(workset, resPath, isPublic, userName);
+        ImportJob existing = _jobs.putIfAbsent(resPath, job);
+        if (existing != null) {
+            if (!existing.isFinished() || !_jobs.replace(resPath, existing, job)) {
+                return null;
+            }
+        }
+
+        try {
+            _executor.execute(job);
+        }
+        catch (RejectedExecutionException e) {
+            _jobs.remove(resPath, job);
+            throw e;
+        }
+
+        Log.debug(String.format("Queued import of workset: %s (%d volumes)",
+                                resPath, job.getStatus().getVolumeCount()));
+
+        return job.getStatus();
+    }
+
+    /**
+     * Return the status of the latest import of a workset
+     *
+     * @param resPath The workset resource path
+     * @return The import status, or null if no import of the workset is known
+     */
+    public static WorksetImport getStatus(String resPath) {
+        purgeFinished();
+
+        ImportJob job = _jobs.get(resPath);
+        return (job != null) ? job.getStatus() : null;
+    }
+
+    private static void purgeFinished() {
+        long oldest = System.currentTimeMillis() - _retentionMillis;
+
+        Iterator<ImportJob> iterator = _jobs.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFinishedBefore(oldest)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A workset import, notified by the marshaller as the workset volumes are serialized
+     */
+    private static class ImportJob extends Marshaller.Listener implements Runnable {
+
+        private final String _resPath;
+        private final boolean _isPublic;
+        private final String _userName;
+        private final String _worksetName;
+        private final int _volumeCount;
+        private final Calendar _submitted;
+        private final AtomicInteger _volumesProcessed = new AtomicInteger();
+        private volatile Workset _workset;
+        private volatile WorksetImportStatus _status = WorksetImportStatus.QUEUED;
+        private volatile Calendar _finished;
+        private volatile String _message;
+
+        ImportJob(Workset workset, String resPath, boolean isPublic, String userName) {
+            WorksetContent content = workset.getContent();
+
+            _workset = workset;
+            _resPath = resPath;
+            _isPublic = isPublic;
+            _userName = userName;
+            _worksetName = workset.getMetadata().getName();
+            _volumeCount = (content != null) ? content.getVolumes().size() : 0;
+            _submitted = Calendar.getInstance();
+        }
+
+        public void run() {
+            _status = WorksetImportStatus.RUNNING;
+
+            try {
+                UserRegistry registry = RegistryUtils.getUserRegistry(_userName);
+                if (registry.resourceExists(_resPath)) {
+                    throw new RegistryException("Workset already exists: " + _worksetName);
+                }
+
+                WorksetUtils.putNewWorkset(_workset, _resPath, _isPublic, registry, this);
+                _status = WorksetImportStatus.COMPLETED;
+
+                Log.debug(String.format("Imported workset: %s (%d volumes)",
+                                        _resPath, _volumeCount));
+            }
+            catch (Exception e) {
+                Log.error("Cannot import workset: " + _resPath, e);
+                _message = e.toString();
+                _status = WorksetImportStatus.FAILED;
+            }
+            finally {
+                // release the volumes as soon as they are stored
+                _workset = null;
+                _finished = Calendar.getInstance();
+            }
+        }
+
+        @Override
+        public void afterMarshal(Object source) {
+            if (source instanceof Volume) {
+                _volumesProcessed.incrementAndGet();
+            }
+        }
+
+        boolean isFinished() {
+            return _finished != null;
+        }
+
+        boolean isFinishedBefore(long time) {
+            Calendar finished = _finished;
+            return finished != null && finished.getTimeInMillis() < time;
+        }
+
+        WorksetImport getStatus() {
+            WorksetImport status = new WorksetImport();
+            status.setWorkset(_worksetName);
+            // read before the status, which no longer changes once the import is finished
+            status.setFinished(_finished);
+            status.setStatus(_status);
+            status.setMessage(_message);
+            status.setVolumeCount(_volumeCount);
+            status.setVolumesProcessed(Math.min(_volumesProcessed.get(), _volumeCount));
+            status.setSubmitted(_submitted);
+
+            return status;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The manifest of a workset stored in the segmented layout, kept as the content of the workset
+ * resource. It records the registry collection holding the segments, and the name and number
+ * of volumes of each segment; the volumes of the workset are the volumes of its segments, in
+ * order.
+ * <p>
+ * Segments are never rewritten in place: a changed segment is stored under a new name, so that
+ * readers holding a previous manifest keep reading the segments it refers to, and the segment
+ * it supersedes is deleted once the new manifest is committed.
+ * <p>
+ * The manifest is serialized as plain text: the segments collection path on the first line,
+ * followed by the volume count and name of each segment, one per line. Segments recorded with
+ * only a volume count are named after their index.
+ *
+ * @author capitanu
+ */
+public class WorksetManifest {
+
+    private final String _segmentsPath;
+    private final List<String> _segmentNames;
+    private final List<Integer> _volumeCounts;
+
+    /**
+     * Constructor
+     *
+     * @param segmentsPath The registry path of the collection holding the segments
+     */
+    public WorksetManifest(String segmentsPath) {
+        this(segmentsPath, new ArrayList<String>(), new ArrayList<Integer>());
+    }
+
+    private WorksetManifest(String segmentsPath, List<String> segmentNames,
+                            List<Integer> volumeCounts) {
+        _segmentsPath = segmentsPath;
+        _segmentNames = segmentNames;
+        _volumeCounts = volumeCounts;
+    }
+
+    /**
+     * Return the registry path of the collection holding the segments
+     *
+     * @return The registry path of the collection holding the segments
+     */
+    public String getSegmentsPath() {
+        return _segmentsPath;
+    }
+
+    /**
+     * Return the registry path of a segment
+     *
+     * @param index The segment index
+     * @return The registry path of the segment
+     */
+    public String getSegmentPath(int index) {
+        return _segmentsPath + "/" + _segmentNames.get(index);
+    }
+
+    /**
+     * Return the number of segments
+     *
+     * @return The number of segments
+     */
+    public int getSegmentCount() {
+        return _volumeCounts.size();
+    }
+
+    /**
+     * Return the number of volumes in a segment
+     *
+     * @param index The segment index
+     * @return The number of volumes in the segment
+     */
+    public int getVolumeCount(int index) {
+        return _volumeCounts.get(index);
+    }
+
+    /**
+     * Record a new version of a segment, under a new name
+     *
+     * @param index       The segment index
+     * @param volumeCount The number of volumes in the new version of the segment
+     */
+    public void replaceSegment(int index, int volumeCount) {
+        _segmentNames.set(index, newSegmentName());
+        _volumeCounts.set(index, volumeCount);
+    }
+
+    /**
+     * Record a new segment, following the existing ones
+     *
+     * @param volumeCount The number of volumes in the segment
+     * @return The index of the new segment
+     */
+    public int addSegment(int volumeCount) {
+        _segmentNames.add(newSegmentName());
+        _volumeCounts.add(volumeCount);
+        return _volumeCounts.size() - 1;
+    }
+
+    /**
+     * Serialize the manifest
+     *
+     * @return The serialized manifest
+     */
+    public byte[] toBytes() {
+        StringBuilder sb = new StringBuilder(_segmentsPath).append('\n');
+        for (int i = 0; i < _volumeCounts.size(); i++) {
+            sb.append(_volumeCounts.get(i)).append(' ').append(_segmentNames.get(i)).append('\n');
+        }
+
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * De-serialize a manifest
+     *
+     * @param stream The stream containing the serialized manifest (closed by this method)
+     * @return The manifest
+     * @throws IOException Thrown if the manifest cannot be read or is invalid
+     */
+    public static WorksetManifest read(InputStream stream) throws IOException {
+        try (BufferedReader reader =
+                 new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String segmentsPath = reader.readLine();
+            if (segmentsPath == null || segmentsPath.isEmpty()) {
+                throw new IOException("Invalid workset manifest: missing segments path");
+            }
+
+            List<String> segmentNames = new ArrayList<>();
+            List<Integer> volumeCounts = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    int idx = line.indexOf(' ');
+                    try {
+                        volumeCounts.add(Integer.parseInt(idx < 0 ? line : line.substring(0, idx)));
+                    }
+                    catch (NumberFormatException e) {
+                        throw new IOException("Invalid workset manifest: " + line, e);
+                    }
+                    segmentNames.add(
+                        idx < 0 ? Integer.toString(segmentNames.size()) : line.substring(idx + 1));
+                }
+            }
+
+            return new WorksetManifest(segmentsPath, segmentNames, volumeCounts);
+        }
+    }
+
+    private static String newSegmentName() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,106 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used cache of workset metadata, keyed by workset resource path and
+ * validated against the revision of the resource (see {@link WorksetUtils#getRevision}). The
+ * last-modified time is not used for validation, since the registry only keeps it to the
+ * second: metadata computed from a resource read just before a write in the same second could
+ * otherwise be cached after the write, and served until the next one. Entries are also
+ * invalidated explicitly when a workset is written.
+ *
+ * @author capitanu
+ */
+public class WorksetMetaCache {
+
+    private final Map<String, CachedMeta> _entries;
+
+    /**
+     * Constructor
+     *
+     * @param maxSize The maximum number of entries to keep
+     */
+    public WorksetMetaCache(final int maxSize) {
+        _entries = new LinkedHashMap<String, CachedMeta>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedMeta> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Retrieve the cached metadata for a workset
+     *
+     * @param resPath The workset resource path
+     * @param revision The revision of the workset resource
+     * @return A copy of the cached metadata, or null if not cached or the cached metadata
+     * was computed for a different revision of the resource
+     */
+    public WorksetMeta get(String resPath, String revision) {
+        CachedMeta cached;
+        synchronized (_entries) {
+            cached = _entries.get(resPath);
+        }
+
+        return (cached != null && cached.revision.equals(revision)) ? copy(cached.meta) : null;
+    }
+
+    /**
+     * Cache the metadata for a workset
+     *
+     * @param resPath The workset resource path
+     * @param revision The revision of the workset resource
+     * @param meta     The workset metadata
+     */
+    public void put(String resPath, String revision, WorksetMeta meta) {
+        CachedMeta cached = new CachedMeta(revision, copy(meta));
+        synchronized (_entries) {
+            _entries.put(resPath, cached);
+        }
+    }
+
+    /**
+     * Remove the cached metadata for a workset
+     *
+     * @param resPath The workset resource path
+     */
+    public void invalidate(String resPath) {
+        synchronized (_entries) {
+            _entries.remove(resPath);
+        }
+    }
+
+    private static WorksetMeta copy(WorksetMeta meta) {
+        WorksetMeta copy = new WorksetMeta();
+        copy.setName(meta.getName());
+        copy.setDescription(meta.getDescription());
+        copy.setAuthor(meta.getAuthor());
+        copy.setVolumeCount(meta.getVolumeCount());
+        copy.setPublic(meta.isPublic());
+        if (meta.getCreated() != null) {
+            copy.setCreated((Calendar) meta.getCreated().clone());
+        }
+        if (meta.getLastModified() != null) {
+            copy.setLastModified((Calendar) meta.getLastModified().clone());
+        }
+        copy.getTags().addAll(meta.getTags());
+
+        return copy;
+    }
+
+    private static class CachedMeta {
+
+        final String revision;
+        final WorksetMeta meta;
+
+        CachedMeta(String revision, WorksetMeta meta) {
+            this.revision = revision;
+            this.meta = meta;
+        }
+    }
+}
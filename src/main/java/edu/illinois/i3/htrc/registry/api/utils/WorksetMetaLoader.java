@@ -0,0 +1,239 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.ServletContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Retrieves the metadata of many worksets at once, directly from the registry database, using
+ * a fixed number of set-based queries per batch of registry paths instead of several registry
+ * calls per workset. No authorization checks are performed, so the results should only be
+ * exposed to callers that would otherwise use the admin registry.
+ *
+ * @author capitanu
+ */
+public class WorksetMetaLoader {
+
+    private static final Log Log = LogFactory.getLog(WorksetMetaLoader.class);
+
+    /**
+     * The maximum number of values bound to a single IN (...) list
+     */
+    private static final int MAX_IN_PARAMS = 500;
+
+    /**
+     * Checks whether the queries needed for batch retrieval are configured
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @return True if batch retrieval is possible, False otherwise
+     */
+    public static boolean isConfigured(ServletContext context) {
+        return context != null
+            && context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_PATH_IDS_QUERY) != null
+            && context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_RESOURCES_QUERY) != null
+            && context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_PROPERTIES_QUERY) != null
+            && context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_TAGS_QUERY) != null;
+    }
+
+    /**
+     * Retrieves the metadata of the worksets stored at the given registry paths
+     *
+     * @param paths   The workset resource paths
+     * @param context The servlet context used to retrieve the query configuration
+     * @return The map of workset metadata, keyed by resource path; paths that do not refer to
+     * a registry resource (missing resources or collections) are not included
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Map<String, WorksetMeta> loadWorksetsMeta(
+        Collection<String> paths, ServletContext context) throws SQLException {
+
+        final Set<String> requested = new HashSet<>(paths);
+        Set<String> parentPaths = new LinkedHashSet<>();
+        for (String path : paths) {
+            int idx = path.lastIndexOf('/');
+            if (idx > 0) {
+                parentPaths.add(path.substring(0, idx));
+            }
+        }
+
+        final Map<String, WorksetMeta> worksetsMeta = new HashMap<>(requested.size());
+        if (parentPaths.isEmpty()) {
+            return worksetsMeta;
+        }
+
+        List<Object> tenantParam = Collections.<Object>singletonList(RegistryUtils.getTenantId());
+        final Map<Integer, String> pathValues = new HashMap<>();
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            query(conn, context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_PATH_IDS_QUERY),
+                  tenantParam, new ArrayList<Object>(parentPaths), new RowHandler() {
+                    public void handle(ResultSet results) throws SQLException {
+                        pathValues.put(
+                            results.getInt("REG_PATH_ID"), results.getString("REG_PATH_VALUE"));
+                    }
+                });
+
+            if (pathValues.isEmpty()) {
+                return worksetsMeta;
+            }
+
+            List<Object> pathIds = new ArrayList<Object>(pathValues.keySet());
+
+            query(conn, context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_RESOURCES_QUERY),
+                  tenantParam, pathIds, new RowHandler() {
+                    public void handle(ResultSet results) throws SQLException {
+                        String name = results.getString("REG_NAME");
+                        String resPath = pathValues.get(results.getInt("REG_PATH_ID")) + "/" + name;
+                        if (!requested.contains(resPath)) {
+                            return;
+                        }
+
+                        WorksetMeta worksetMeta = new WorksetMeta();
+                        worksetMeta.setName(name);
+                        worksetMeta.setDescription(results.getString("REG_DESCRIPTION"));
+                        worksetMeta.setAuthor(results.getString("REG_CREATOR"));
+                        worksetMeta.setCreated(
+                            toCalendar(results.getTimestamp("REG_CREATED_TIME")));
+                        worksetMeta.setLastModified(
+                            toCalendar(results.getTimestamp("REG_LAST_UPDATED_TIME")));
+                        worksetMeta.setPublic(false);
+                        worksetsMeta.put(resPath, worksetMeta);
+                    }
+                });
+
+            List<Object> propertiesParams = Arrays.<Object>asList(
+                RegistryUtils.getTenantId(),
+                Constants.HTRC_PROP_VOLCOUNT,
+                Constants.HTRC_PROP_PUBLIC
+            );
+
+            query(conn, context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_PROPERTIES_QUERY),
+                  propertiesParams, pathIds, new RowHandler() {
+                    public void handle(ResultSet results) throws SQLException {
+                        String resPath = pathValues.get(results.getInt("REG_PATH_ID")) + "/" +
+                            results.getString("REG_NAME");
+                        WorksetMeta worksetMeta = worksetsMeta.get(resPath);
+                        if (worksetMeta == null) {
+                            return;
+                        }
+
+                        String propName = results.getString("PROP_NAME");
+                        String propValue = results.getString("PROP_VALUE");
+                        if (Constants.HTRC_PROP_VOLCOUNT.equals(propName)) {
+                            worksetMeta.setVolumeCount(Integer.parseInt(propValue));
+                        }
+                        else if (Constants.HTRC_PROP_PUBLIC.equals(propName)) {
+                            worksetMeta.setPublic(Boolean.parseBoolean(propValue));
+                        }
+                    }
+                });
+
+            query(conn, context.getInitParameter(Constants.WEBXML_CONFIG_WORKSETS_TAGS_QUERY),
+                  tenantParam, pathIds, new RowHandler() {
+                    public void handle(ResultSet results) throws SQLException {
+                        String resPath = pathValues.get(results.getInt("REG_PATH_ID")) + "/" +
+                            results.getString("REG_NAME");
+                        WorksetMeta worksetMeta = worksetsMeta.get(resPath);
+                        if (worksetMeta != null) {
+                            worksetMeta.getTags().add(results.getString("REG_TAG_NAME"));
+                        }
+                    }
+                });
+        }
+
+        for (Map.Entry<String, WorksetMeta> entry : worksetsMeta.entrySet()) {
+            WorksetMeta worksetMeta = entry.getValue();
+            if (worksetMeta.getVolumeCount() == null) {
+                Log.warn(
+                    String.format(
+                        "Missing property: '%s' for workset: %s",
+                        Constants.HTRC_PROP_VOLCOUNT,
+                        entry.getKey()
+                    ));
+                worksetMeta.setVolumeCount(-1);
+            }
+        }
+
+        if (Log.isDebugEnabled()) {
+            Log.debug(String.format("loadWorksetsMeta: requested: %d, found: %d",
+                                    requested.size(), worksetsMeta.size()));
+        }
+
+        return worksetsMeta;
+    }
+
+    /**
+     * Runs a query once for each batch of IN (...) list values, passing every result row
+     * to the given handler
+     *
+     * @param conn        The database connection
+     * @param sql         The query, containing a %s placeholder for the IN (...) list
+     * @param params      The parameters bound before the IN (...) list values
+     * @param inParams    The IN (...) list values
+     * @param rowHandler  The handler for result rows
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    private static void query(Connection conn, String sql, List<Object> params,
+                              List<Object> inParams, RowHandler rowHandler) throws SQLException {
+        for (int start = 0; start < inParams.size(); start += MAX_IN_PARAMS) {
+            List<Object> batch =
+                inParams.subList(start, Math.min(start + MAX_IN_PARAMS, inParams.size()));
+
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < batch.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+
+            try (PreparedStatement stmt =
+                     conn.prepareStatement(String.format(sql, placeholders))) {
+                int index = 1;
+                for (Object param : params) {
+                    stmt.setObject(index++, param);
+                }
+                for (Object param : batch) {
+                    stmt.setObject(index++, param);
+                }
+
+                try (ResultSet results = stmt.executeQuery()) {
+                    while (results.next()) {
+                        rowHandler.handle(results);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Calendar toCalendar(Timestamp timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(timestamp);
+
+        return calendar;
+    }
+
+    private interface RowHandler {
+
+        void handle(ResultSet results) throws SQLException;
+    }
+}
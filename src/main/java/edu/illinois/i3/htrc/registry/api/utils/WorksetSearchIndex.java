@@ -0,0 +1,443 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.api.RegistryExtension;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+
+/**
+ * Full-text search over the workset metadata (name, description, author and tags), backed by an
+ * embedded on-disk Lucene index. The index is updated whenever a workset is written or deleted.
+ * <p>
+ * Updates are applied off the request path, one at a time and in the order they were made, by
+ * a single background thread that also runs the rebuilds, so that a rebuild does not race with
+ * the updates made meanwhile. Searches see an update as soon as it is applied, through the
+ * near-real-time searcher; the index is committed to disk periodically and on shutdown, rather
+ * than on every update.
+ * <p>
+ * The index only holds the metadata needed for searching; it is built from the registry in the
+ * background when it does not exist yet (or when a rebuild is requested), during which time
+ * searches see the index as it was before the rebuild. Should an update of the index fail, the
+ * index can be reconciled with the registry by rebuilding it. Hits for worksets that no longer
+ * exist are dropped when the metadata of the results is read from the registry (see
+ * {@link WorksetUtils#getWorksetsMeta}), so a page may hold fewer results than requested.
+ *
+ * @author capitanu
+ */
+public class WorksetSearchIndex {
+
+    /**
+     * The maximum number of ranked results that can be paged through
+     */
+    public static final int MAX_RESULTS = 10000;
+
+    /**
+     * The maximum number of results returned in a page
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Log Log = LogFactory.getLog(WorksetSearchIndex.class);
+
+    // the interval at which the updates of the index are committed to disk
+    private static final long COMMIT_INTERVAL_SECONDS = 60;
+
+    // the time given to the pending updates to be applied on shutdown
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private static final String FIELD_PATH = "path";
+    private static final String FIELD_COLLECTION = "collection";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_DESCRIPTION = "description";
+    private static final String FIELD_AUTHOR = "author";
+    private static final String FIELD_TAGS = "tags";
+    private static final String FIELD_PUBLIC = "public";
+
+    private static final String[] SEARCH_FIELDS =
+        { FIELD_NAME, FIELD_TAGS, FIELD_AUTHOR, FIELD_DESCRIPTION };
+    private static final Map<String, Float> SEARCH_BOOSTS = new HashMap<>();
+
+    static {
+        SEARCH_BOOSTS.put(FIELD_NAME, 4f);
+        SEARCH_BOOSTS.put(FIELD_TAGS, 2f);
+        SEARCH_BOOSTS.put(FIELD_AUTHOR, 2f);
+        SEARCH_BOOSTS.put(FIELD_DESCRIPTION, 1f);
+    }
+
+    private static Analyzer _analyzer;
+    private static Directory _directory;
+    private static IndexWriter _writer;
+    private static SearcherManager _searcherManager;
+    private static ScheduledExecutorService _executor;
+
+    /**
+     * Initialize the workset search index, creating it if necessary
+     *
+     * @param context  The servlet context used to retrieve the query configuration
+     * @param indexDir The directory holding the index
+     * @param rebuild  True to rebuild the index from the registry, False to only build it if it
+     *                 does not exist
+     * @throws IOException Thrown if the index cannot be opened
+     */
+    public static void initialize(final ServletContext context, File indexDir, boolean rebuild)
+        throws IOException {
+        Log.info("Opening the workset search index at " + indexDir);
+
+        _analyzer = new StandardAnalyzer();
+        _directory = FSDirectory.open(indexDir.toPath());
+        boolean exists = DirectoryReader.indexExists(_directory);
+
+        _writer = new IndexWriter(_directory, new IndexWriterConfig(_analyzer));
+        _searcherManager = new SearcherManager(_writer, true, null);
+
+        _executor = Executors.newSingleThreadScheduledExecutor(
+            new WorksetUtils.DaemonThreadFactory("workset-search"));
+        _executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                commit();
+            }
+        }, COMMIT_INTERVAL_SECONDS, COMMIT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        if (rebuild || !exists) {
+            submit(new Runnable() {
+                public void run() {
+                    try {
+                        rebuild(context);
+                    }
+                    catch (Exception e) {
+                        Log.error("Cannot rebuild the workset search index", e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Close the workset search index, once the pending updates are applied and committed. If
+     * they cannot be applied in time, the updates made since the last commit are discarded,
+     * and will be reconciled the next time the index is rebuilt.
+     */
+    public static void shutdown() {
+        try {
+            if (_executor != null) {
+                // not interrupted, since interrupting the index I/O would close the index
+                _executor.shutdown();
+                boolean terminated =
+                    _executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                _executor = null;
+
+                if (!terminated && _writer != null) {
+                    Log.warn("The workset search index updates did not complete in time; "
+                                 + "discarding the updates since the last commit");
+                    _writer.rollback();
+                    _writer = null;
+                }
+            }
+            if (_writer != null) {
+                _writer.commit();
+            }
+            if (_searcherManager != null) {
+                _searcherManager.close();
+                _searcherManager = null;
+            }
+            if (_writer != null) {
+                _writer.close();
+                _writer = null;
+            }
+            if (_directory != null) {
+                _directory.close();
+                _directory = null;
+            }
+        }
+        catch (IOException e) {
+            Log.warn("Error closing the workset search index", e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.warn("Interrupted while closing the workset search index", e);
+        }
+    }
+
+    /**
+     * Rebuild the workset search index from the registry; must be called from the index update
+     * thread (see {@link #initialize}), so that it does not race with the index updates
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     * @throws RegistryException Thrown if a registry error occurs
+     * @throws IOException       Thrown if the index cannot be written
+     */
+    private static void rebuild(ServletContext context)
+        throws SQLException, RegistryException, IOException {
+        Log.info("Rebuilding the workset search index");
+
+        String sqlCollections =
+            context.getInitParameter(Constants.WEBXML_CONFIG_WORKSET_SEARCH_COLLECTIONS_QUERY);
+        String allUsersWorksetsPathsSql =
+            RegistryExtension.getConfig().getUserWorksetsPath("%");
+
+        List<String> collectionPaths = new ArrayList<>();
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sqlCollections)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, allUsersWorksetsPathsSql);
+
+            try (ResultSet results = stmt.executeQuery()) {
+                while (results.next()) {
+                    collectionPaths.add(results.getString("REG_PATH_VALUE"));
+                }
+            }
+        }
+
+        UserRegistry registry = RegistryUtils.getAdminRegistry();
+        _writer.deleteAll();
+
+        int count = 0;
+        for (String collectionPath : collectionPaths) {
+            Collection collection;
+            try {
+                collection = (Collection) registry.get(collectionPath);
+            }
+            catch (ResourceNotFoundException e) {
+                continue;
+            }
+
+            for (WorksetMeta meta : WorksetUtils.getWorksetsMeta(collection, registry, context)) {
+                String resPath = collectionPath + "/" + meta.getName();
+                boolean isPublic = Boolean.TRUE.equals(meta.isPublic());
+                _writer.updateDocument(
+                    new Term(FIELD_PATH, resPath), createDocument(resPath, meta, isPublic));
+                count++;
+            }
+        }
+
+        _writer.commit();
+        _searcherManager.maybeRefresh();
+        Log.info(String.format("Indexed %d worksets for searching", count));
+    }
+
+    /**
+     * Queue the indexing of the metadata of a workset, after the workset was written. Failures
+     * are logged rather than reported, since the workset has already been updated in the
+     * registry; the workset will be indexed the next time the index is rebuilt.
+     *
+     * @param resPath  The workset resource path
+     * @param meta     The workset metadata, as stored in the registry
+     * @param isPublic True if the workset is public, False otherwise
+     */
+    public static void update(final String resPath, WorksetMeta meta, boolean isPublic) {
+        final Document doc = createDocument(resPath, meta, isPublic);
+        submit(new Runnable() {
+            public void run() {
+                try {
+                    _writer.updateDocument(new Term(FIELD_PATH, resPath), doc);
+                    _searcherManager.maybeRefresh();
+                }
+                catch (IOException | RuntimeException e) {
+                    Log.error("Cannot update the workset search index for workset: " + resPath,
+                              e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Remove a workset from the index, after the workset was deleted. Failures are logged rather
+     * than reported, as hits for the deleted workset are dropped when the search results are
+     * read from the registry.
+     *
+     * @param resPath The workset resource path
+     */
+    public static void remove(final String resPath) {
+        submit(new Runnable() {
+            public void run() {
+                try {
+                    _writer.deleteDocuments(new Term(FIELD_PATH, resPath));
+                    _searcherManager.maybeRefresh();
+                }
+                catch (IOException | RuntimeException e) {
+                    Log.warn("Could not remove workset from the search index: " + resPath, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Search the worksets, returning the paths of a page of results ordered by relevance
+     *
+     * @param queryString    The query, in the Lucene query syntax; terms match the workset name,
+     *                       tags, author and description, and must all be present
+     * @param collectionPath The path of the collection whose worksets are searched, or null to
+     *                       search the public worksets only
+     * @param includePublic  True to also search the public worksets, False otherwise (ignored
+     *                       when collectionPath is null)
+     * @param offset         The number of results to skip
+     * @param limit          The maximum number of results to return
+     * @return The page of search results
+     * @throws ParseException Thrown if the query is not valid
+     * @throws IOException    Thrown if the index cannot be read
+     */
+    public static SearchResults search(String queryString, String collectionPath,
+                                       boolean includePublic, int offset, int limit)
+        throws ParseException, IOException {
+        // query parsers are not thread-safe
+        MultiFieldQueryParser parser =
+            new MultiFieldQueryParser(SEARCH_FIELDS, _analyzer, SEARCH_BOOSTS);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(parser.parse(queryString), Occur.MUST);
+        query.add(getVisibilityFilter(collectionPath, includePublic), Occur.FILTER);
+
+        IndexSearcher searcher = _searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query.build(), Math.min(offset + limit, MAX_RESULTS));
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+
+            List<String> paths = new ArrayList<>(Math.max(scoreDocs.length - offset, 0));
+            for (int i = offset; i < scoreDocs.length; i++) {
+                paths.add(searcher.doc(scoreDocs[i].doc).get(FIELD_PATH));
+            }
+
+            return new SearchResults(paths, topDocs.totalHits);
+        }
+        finally {
+            _searcherManager.release(searcher);
+        }
+    }
+
+    private static void commit() {
+        try {
+            if (_writer.hasUncommittedChanges()) {
+                _writer.commit();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            Log.warn("Could not commit the workset search index", e);
+        }
+    }
+
+    private static void submit(Runnable task) {
+        ExecutorService executor = _executor;
+        if (executor == null) {
+            Log.warn("The workset search index is not running; the update was dropped");
+            return;
+        }
+
+        try {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            Log.warn("The workset search index is shutting down; the update was dropped");
+        }
+    }
+
+    private static Query getVisibilityFilter(String collectionPath, boolean includePublic) {
+        TermQuery publicQuery = new TermQuery(new Term(FIELD_PUBLIC, Boolean.TRUE.toString()));
+        if (collectionPath == null) {
+            return publicQuery;
+        }
+
+        BooleanQuery.Builder filter = new BooleanQuery.Builder();
+        filter.add(new TermQuery(new Term(FIELD_COLLECTION, collectionPath)), Occur.SHOULD);
+        if (includePublic) {
+            filter.add(publicQuery, Occur.SHOULD);
+        }
+
+        return filter.build();
+    }
+
+    private static Document createDocument(String resPath, WorksetMeta meta, boolean isPublic) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_PATH, resPath, Store.YES));
+        doc.add(new StringField(FIELD_COLLECTION, PagingUtils.getParentPath(resPath), Store.NO));
+        doc.add(new StringField(FIELD_PUBLIC, Boolean.toString(isPublic), Store.NO));
+        doc.add(new TextField(FIELD_NAME, meta.getName(), Store.NO));
+        if (meta.getDescription() != null) {
+            doc.add(new TextField(FIELD_DESCRIPTION, meta.getDescription(), Store.NO));
+        }
+        if (meta.getAuthor() != null) {
+            doc.add(new TextField(FIELD_AUTHOR, meta.getAuthor(), Store.NO));
+        }
+        for (String tag : meta.getTags()) {
+            doc.add(new TextField(FIELD_TAGS, tag, Store.NO));
+        }
+
+        return doc;
+    }
+
+    /**
+     * A page of search results
+     */
+    public static class SearchResults {
+
+        private final List<String> _paths;
+        private final int _totalHits;
+
+        SearchResults(List<String> paths, int totalHits) {
+            _paths = paths;
+            _totalHits = totalHits;
+        }
+
+        /**
+         * Return the paths of the worksets in the page, most relevant first
+         *
+         * @return The workset paths
+         */
+        public List<String> getPaths() {
+            return _paths;
+        }
+
+        /**
+         * Return the total number of worksets matching the query
+         *
+         * @return The total number of matching worksets
+         */
+        public int getTotalHits() {
+            return _totalHits;
+        }
+    }
+}
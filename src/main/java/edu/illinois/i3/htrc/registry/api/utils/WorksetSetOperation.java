@@ -0,0 +1,163 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.bind.JAXBException;
+import org.roaringbitmap.RoaringBitmap;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+
+/**
+ * Set operations over the volumes of worksets. Intersections and differences are computed on
+ * the workset bitmaps (see {@link WorksetBitmaps}), and the volumes of the first workset are
+ * then filtered by the resulting volume ids; unions stream the volumes of all the worksets,
+ * matching them by id using a hash map. The resulting volumes keep the order and the
+ * properties with which they first appear in the worksets.
+ *
+ * @author capitanu
+ */
+public enum WorksetSetOperation {
+
+    /**
+     * The volumes found in any of the worksets
+     */
+    UNION("union"),
+
+    /**
+     * The volumes found in all of the worksets
+     */
+    INTERSECTION("intersection"),
+
+    /**
+     * The volumes of the first workset not found in any of the other worksets
+     */
+    DIFFERENCE("difference");
+
+    private final String _name;
+
+    WorksetSetOperation(String name) {
+        _name = name;
+    }
+
+    /**
+     * Return the operation name
+     *
+     * @return The operation name
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Apply the operation to the volumes of a list of worksets
+     *
+     * @param worksets The workset resources (at least one)
+     * @return The resulting volumes
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public List<Volume> apply(List<Resource> worksets)
+        throws SQLException, JAXBException, RegistryException {
+        Map<String, Volume> result = new LinkedHashMap<>();
+
+        if (this == UNION) {
+            for (Resource workset : worksets) {
+                collectVolumes(workset, null, result);
+            }
+        }
+        else {
+            Set<String> ids = new HashSet<>(VolumeIdDictionary.decode(applyBitmaps(worksets)));
+            collectVolumes(worksets.get(0), ids, result);
+        }
+
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Count the volumes resulting from applying the operation to a list of worksets, using
+     * the workset bitmaps only
+     *
+     * @param worksets The workset resources (at least one)
+     * @return The number of resulting volumes
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public int count(List<Resource> worksets)
+        throws SQLException, JAXBException, RegistryException {
+        return applyBitmaps(worksets).getCardinality();
+    }
+
+    private RoaringBitmap applyBitmaps(List<Resource> worksets)
+        throws SQLException, JAXBException, RegistryException {
+        RoaringBitmap result = WorksetBitmaps.getBitmap(worksets.get(0));
+
+        for (Resource workset : worksets.subList(1, worksets.size())) {
+            RoaringBitmap bitmap = WorksetBitmaps.getBitmap(workset);
+            switch (this) {
+                case UNION:
+                    result.or(bitmap);
+                    break;
+
+                case INTERSECTION:
+                    result.and(bitmap);
+                    break;
+
+                case DIFFERENCE:
+                    result.andNot(bitmap);
+                    break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the operation with the given name
+     *
+     * @param name The operation name
+     * @return The operation, or null if no operation exists with the given name
+     */
+    public static WorksetSetOperation forName(String name) {
+        for (WorksetSetOperation operation : values()) {
+            if (operation._name.equalsIgnoreCase(name)) {
+                return operation;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Add the volumes of a workset to a result, keeping only the volumes with the given ids
+     * (if given) and skipping volumes already part of the result
+     */
+    private static void collectVolumes(Resource workset, Set<String> ids,
+                                       Map<String, Volume> result)
+        throws JAXBException, RegistryException {
+        try (VolumeReader reader = WorksetUtils.openWorksetVolumesReader(workset)) {
+            Volume volume;
+            while (reader != null && (volume = reader.read()) != null) {
+                String id = volume.getId();
+                if (ids != null && !ids.contains(id)) {
+                    continue;
+                }
+                if (!result.containsKey(id)) {
+                    result.put(id, volume);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new RegistryException("Error closing resource stream for: "
+                                            + workset.getPath(), e);
+        }
+    }
+}
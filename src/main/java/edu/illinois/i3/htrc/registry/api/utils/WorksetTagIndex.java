@@ -0,0 +1,312 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.api.RegistryExtension;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.ServletContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Maintains the inverted index of workset tags, mapping each tag to the worksets (by workset
+ * name and collection path) it is applied to, which is used for listing the worksets having a
+ * tag, and for counting the worksets having each tag, instead of retrieving the tags of every
+ * workset.
+ * <p>
+ * The tags of a workset are indexed after the workset is committed to the registry, as read
+ * back from the registry, and are removed from the index after the workset is deleted. Should
+ * an update of the index fail, the index can be reconciled with the registry tags by rebuilding
+ * it. Until then, worksets listed by tag that no longer exist are dropped when their metadata
+ * is read from the registry (see {@link WorksetUtils#getWorksetsMeta}), but the tags of such
+ * worksets are still counted.
+ *
+ * @author capitanu
+ */
+public class WorksetTagIndex {
+
+    private static final Log Log = LogFactory.getLog(WorksetTagIndex.class);
+
+    private static String _sqlClear;
+    private static String _sqlRebuild;
+    private static String _sqlInsert;
+    private static String _sqlDelete;
+    private static String _sqlPaths;
+    private static String _sqlPublicPaths;
+    private static String _sqlPublicPathsPage;
+    private static String _sqlPublicCounts;
+    private static String _sqlCounts;
+
+    /**
+     * Initialize the workset tag index, creating it if necessary
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @param rebuild True to rebuild the index from the registry tags, False otherwise
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void initialize(ServletContext context, boolean rebuild) throws SQLException {
+        String sqlCreate = context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_CREATE_QUERY);
+        _sqlClear = context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_CLEAR_QUERY);
+        _sqlRebuild = context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_REBUILD_QUERY);
+        _sqlInsert = context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_INSERT_QUERY);
+        _sqlDelete = context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_DELETE_QUERY);
+        _sqlPaths = context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_PATH_QUERY);
+        _sqlPublicPaths =
+            context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_PUBLIC_PATH_QUERY);
+        _sqlPublicPathsPage =
+            context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_PUBLIC_PATH_PAGE_QUERY);
+        _sqlPublicCounts =
+            context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_PUBLIC_COUNTS_QUERY);
+        _sqlCounts = context.getInitParameter(Constants.WEBXML_CONFIG_TAG_INDEX_COUNTS_QUERY);
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sqlCreate);
+        }
+
+        if (rebuild) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild the workset tag index from the registry tags
+     *
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void rebuild() throws SQLException {
+        Log.info("Rebuilding the workset tags index");
+
+        String allUsersWorksetsPathsSql =
+            RegistryExtension.getConfig().getUserWorksetsPath("%");
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement clearStmt = conn.prepareStatement(_sqlClear);
+                 PreparedStatement rebuildStmt = conn.prepareStatement(_sqlRebuild)) {
+                clearStmt.setInt(1, RegistryUtils.getTenantId());
+                clearStmt.executeUpdate();
+
+                rebuildStmt.setInt(1, RegistryUtils.getTenantId());
+                rebuildStmt.setString(2, allUsersWorksetsPathsSql);
+                int count = rebuildStmt.executeUpdate();
+
+                conn.commit();
+                Log.info(String.format("Indexed %d workset tags", count));
+            }
+            catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Replace the indexed tags of a workset; must be called after the workset is committed,
+     * with the tags stored in the registry
+     *
+     * @param resPath The workset resource path
+     * @param tags    The workset tags
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void setTags(String resPath, Collection<String> tags) throws SQLException {
+        String name = PagingUtils.getName(resPath);
+        String parentPath = PagingUtils.getParentPath(resPath);
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement deleteStmt = conn.prepareStatement(_sqlDelete);
+                 PreparedStatement insertStmt = conn.prepareStatement(_sqlInsert)) {
+                deleteStmt.setInt(1, RegistryUtils.getTenantId());
+                deleteStmt.setString(2, name);
+                deleteStmt.setString(3, parentPath);
+                deleteStmt.executeUpdate();
+
+                for (String tag : new LinkedHashSet<>(tags)) {
+                    insertStmt.setInt(1, RegistryUtils.getTenantId());
+                    insertStmt.setString(2, name);
+                    insertStmt.setString(3, parentPath);
+                    insertStmt.setString(4, tag);
+                    insertStmt.addBatch();
+                }
+                if (!tags.isEmpty()) {
+                    insertStmt.executeBatch();
+                }
+
+                conn.commit();
+            }
+            catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Remove the tags of a workset from the index; should be called after the workset is
+     * deleted. Failures are logged rather than reported, since the workset has already been
+     * deleted from the registry; its tags stay counted until the index is rebuilt.
+     *
+     * @param resPath The workset resource path
+     */
+    public static void remove(String resPath) {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(_sqlDelete)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, PagingUtils.getName(resPath));
+            stmt.setString(3, PagingUtils.getParentPath(resPath));
+            stmt.executeUpdate();
+        }
+        catch (SQLException e) {
+            Log.warn("Could not remove the tags of workset: " + resPath, e);
+        }
+    }
+
+    /**
+     * Retrieves the registry paths of the worksets in a collection having a tag
+     *
+     * @param tag            The tag
+     * @param collectionPath The path of the collection containing the worksets
+     * @return The set of paths of the worksets having the tag
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Set<String> getWorksetsPaths(String tag, String collectionPath)
+        throws SQLException {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(_sqlPaths)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, tag);
+            stmt.setString(3, collectionPath);
+
+            return getPaths(stmt);
+        }
+    }
+
+    /**
+     * Retrieves the registry paths of the public worksets having a tag, ordered by workset name
+     * and then by the path of the containing collection
+     *
+     * @param tag The tag
+     * @return The ordered set of paths of the public worksets having the tag
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Set<String> getPublicWorksetsPaths(String tag) throws SQLException {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(_sqlPublicPaths)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, tag);
+
+            return getPaths(stmt);
+        }
+    }
+
+    /**
+     * Retrieves the registry paths of a page of public worksets having a tag, ordered by
+     * workset name and then by the path of the containing collection
+     *
+     * @param tag   The tag
+     * @param after The path of the last workset in the previous page, or null for the first page
+     * @param limit The maximum number of worksets to retrieve
+     * @return The ordered set of paths of the public worksets in the page
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Set<String> getPublicWorksetsPaths(String tag, String after, int limit)
+        throws SQLException {
+        String afterName = (after != null) ? PagingUtils.getName(after) : "";
+        String afterParentPath = (after != null) ? PagingUtils.getParentPath(after) : "";
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(_sqlPublicPathsPage)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, tag);
+            stmt.setString(3, afterName);
+            stmt.setString(4, afterName);
+            stmt.setString(5, afterParentPath);
+            stmt.setInt(6, limit);
+
+            return getPaths(stmt);
+        }
+    }
+
+    /**
+     * Count the public worksets having each tag
+     *
+     * @param limit The maximum number of tags to return, or null for no limit
+     * @return The number of public worksets having each tag, most frequent tags first
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Map<String, Integer> getPublicTagCounts(Integer limit) throws SQLException {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(_sqlPublicCounts)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setInt(2, (limit != null) ? limit : Integer.MAX_VALUE);
+
+            return getCounts(stmt);
+        }
+    }
+
+    /**
+     * Count the worksets of a collection having each tag
+     *
+     * @param collectionPath The path of the collection containing the worksets
+     * @param includePublic  True to also count the public worksets, False otherwise
+     * @param limit          The maximum number of tags to return, or null for no limit
+     * @return The number of worksets having each tag, most frequent tags first
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Map<String, Integer> getTagCounts(String collectionPath, boolean includePublic,
+                                                    Integer limit)
+        throws SQLException {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(_sqlCounts)) {
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, collectionPath);
+            stmt.setInt(3, includePublic ? 1 : 0);
+            stmt.setInt(4, (limit != null) ? limit : Integer.MAX_VALUE);
+
+            return getCounts(stmt);
+        }
+    }
+
+    private static Map<String, Integer> getCounts(PreparedStatement stmt) throws SQLException {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+
+        try (ResultSet results = stmt.executeQuery()) {
+            while (results.next()) {
+                counts.put(results.getString("TAG_NAME"), results.getInt("TAG_COUNT"));
+            }
+        }
+
+        return counts;
+    }
+
+    private static Set<String> getPaths(PreparedStatement stmt) throws SQLException {
+        Set<String> pathList = new LinkedHashSet<>();
+
+        try (ResultSet results = stmt.executeQuery()) {
+            while (results.next()) {
+                pathList.add(results.getString("WS_PATH"));
+            }
+        }
+
+        return pathList;
+    }
+}
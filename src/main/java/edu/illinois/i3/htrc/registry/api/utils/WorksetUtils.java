@@ -3,15 +3,21 @@ package edu.illinois.i3.htrc.registry.api.utils;
 import edu.illinois.i3.htrc.registry.api.Constants;
 import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
 import edu.illinois.i3.htrc.registry.api.RegistryExtension;
+import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
+import edu.illinois.i3.htrc.registry.entities.workset.Property;
+import edu.illinois.i3.htrc.registry.entities.workset.TagCount;
+import edu.illinois.i3.htrc.registry.entities.workset.TagCounts;
 import edu.illinois.i3.htrc.registry.entities.workset.Volume;
 import edu.illinois.i3.htrc.registry.entities.workset.Volumes;
 import edu.illinois.i3.htrc.registry.entities.workset.Workset;
 import edu.illinois.i3.htrc.registry.entities.workset.WorksetContent;
 import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.Connection;
@@ -21,10 +27,22 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import javax.servlet.ServletContext;
 import javax.sql.DataSource;
@@ -34,16 +52,17 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.roaringbitmap.RoaringBitmap;
 import org.wso2.carbon.registry.core.ActionConstants;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.CollectionImpl;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.Tag;
-import org.wso2.carbon.registry.core.config.RegistryContext;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
-import org.wso2.carbon.registry.core.jdbc.dataaccess.JDBCDataAccessManager;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
 import org.wso2.carbon.registry.core.secure.AuthorizationFailedException;
 import org.wso2.carbon.registry.core.session.UserRegistry;
+import org.wso2.carbon.user.core.UserStoreException;
 
 /**
  * Workset utility helper methods
@@ -55,6 +74,11 @@ public class WorksetUtils {
     private static final Log Log = LogFactory.getLog(WorksetUtils.class);
     private static final JAXBContext jaxbContext;
     private static final Pattern IllegalWorksetCharactersPattern;
+    // names of the literal sub-paths of the worksets APIs, which would shadow worksets so named
+    private static final Set<String> ReservedWorksetNames =
+        new HashSet<>(Arrays.asList("tags", "search", "containing", "stats", "export"));
+    private static WorksetMetaCache _metaCache;
+    private static ExecutorService _fetchExecutor;
 
     static {
         try {
@@ -69,13 +93,98 @@ public class WorksetUtils {
     }
 
     /**
-     * Checks workset name validity
+     * Initialize the workset utilities according to the registry extension configuration
+     *
+     * @param config The registry extension configuration
+     */
+    public static void initialize(RegistryExtensionConfig config) {
+        int metaCacheSize = config.getWorksetMetaCacheSize();
+        _metaCache = (metaCacheSize > 0) ? new WorksetMetaCache(metaCacheSize) : null;
+
+        int fetchThreads = config.getWorksetFetchThreads();
+        _fetchExecutor = (fetchThreads > 0) ?
+            Executors.newFixedThreadPool(fetchThreads, new DaemonThreadFactory("workset-fetch")) :
+            null;
+    }
+
+    /**
+     * Release the resources held by the workset utilities
+     */
+    public static void shutdown() {
+        if (_fetchExecutor != null) {
+            _fetchExecutor.shutdownNow();
+            _fetchExecutor = null;
+        }
+    }
+
+    /**
+     * Remove any cached metadata for a workset, including its cached permission checks; must be
+     * called whenever a workset is written
+     *
+     * @param resPath The workset resource path
+     */
+    public static void invalidateWorksetMeta(String resPath) {
+        if (_metaCache != null) {
+            _metaCache.invalidate(resPath);
+        }
+        RegistryUtils.invalidateAuthorizations(resPath);
+    }
+
+    /**
+     * Add a workset to the public worksets index, after it was made public. Failures are logged
+     * rather than reported, since the workset has already been updated in the registry; the
+     * workset will be indexed the next time the index is rebuilt.
+     *
+     * @param resPath The workset resource path
+     */
+    public static void addPublicWorkset(String resPath) {
+        try {
+            PublicWorksetIndex.add(resPath);
+        }
+        catch (SQLException e) {
+            Log.error("Cannot add workset to the public worksets index: " + resPath, e);
+        }
+    }
+
+    /**
+     * Update the tags of a workset in the workset tags index, after the workset was written.
+     * Failures are logged rather than reported, since the workset has already been updated in
+     * the registry; the workset tags will be indexed the next time the index is rebuilt.
+     *
+     * @param resPath The workset resource path
+     * @param tags    The workset tags, as stored in the registry
+     */
+    public static void indexWorksetTags(String resPath, List<String> tags) {
+        try {
+            WorksetTagIndex.setTags(resPath, tags);
+        }
+        catch (SQLException e) {
+            Log.error("Cannot update the workset tags index for workset: " + resPath, e);
+        }
+    }
+
+    /**
+     * Index the volumes of a workset in the volume to workset index, after the workset was
+     * created or its content replaced. The index is updated in the background; failures are
+     * logged rather than reported, since the workset has already been updated in the registry,
+     * and the workset volumes will be indexed the next time the index is rebuilt.
+     *
+     * @param resPath The workset resource path
+     */
+    public static void indexWorksetVolumes(String resPath) {
+        WorksetVolumeIndex.scheduleUpdate(resPath);
+    }
+
+    /**
+     * Checks workset name validity. Names used as sub-paths of the worksets APIs (such as
+     * "tags") are reserved.
      *
      * @param name The name to check
      * @return True if valid, False otherwise
      */
     public static boolean isLegalWorksetName(String name) {
-        return !IllegalWorksetCharactersPattern.matcher(name).matches();
+        return !IllegalWorksetCharactersPattern.matcher(name).matches()
+            && !ReservedWorksetNames.contains(name);
     }
 
     /**
@@ -89,46 +198,644 @@ public class WorksetUtils {
      */
     public static Resource createResourceFromWorkset(Workset workset, UserRegistry registry)
         throws RegistryException, JAXBException {
+        return createResourceFromWorkset(workset, registry, null);
+    }
+
+    /**
+     * Create a registry resource from a {@link Workset}, reporting the serialization progress
+     *
+     * @param workset  The workset
+     * @param registry The {@link UserRegistry} instance
+     * @param listener The listener notified as the workset volumes are serialized, or null
+     * @return The registry {@link Resource} created
+     * @throws RegistryException Thrown if a registry error occurs
+     * @throws JAXBException     Thrown if a serialization error occurs
+     */
+    public static Resource createResourceFromWorkset(Workset workset, UserRegistry registry,
+                                                     Marshaller.Listener listener)
+        throws RegistryException, JAXBException {
         WorksetMeta worksetMeta = workset.getMetadata();
         WorksetContent worksetContent = workset.getContent();
 
         Resource resource = registry.newResource();
         resource.setDescription(worksetMeta.getDescription());
         resource.setMediaType(HTRCMediaTypes.WORKSET_XML);
-        int volumeCount = 0;
 
         if (worksetContent != null) {
-            List<Volume> volumes = worksetContent.getVolumes();
-            volumeCount = volumes.size();
-            resource.setContentStream(createWorksetContentStream(volumes));
+            setWorksetContent(resource, worksetContent.getVolumes(), listener);
+        }
+        else {
+            resource.setProperty(Constants.HTRC_PROP_VOLCOUNT, "0");
         }
 
-        resource.setProperty(Constants.HTRC_PROP_VOLCOUNT, Integer.toString(volumeCount));
+        updateRevision(resource);
 
         return resource;
     }
 
+    /**
+     * Store a new workset in the registry. The workset content is serialized, and the segments
+     * of large worksets are written, before the registry transaction is started, so that the
+     * transaction only covers storing the workset resource, its community metadata and its
+     * permissions.
+     *
+     * @param workset  The workset (its metadata is updated with the stored community metadata)
+     * @param resPath  The workset resource path
+     * @param isPublic True to make the workset "public" (shared with everyone), False otherwise
+     * @param registry The {@link UserRegistry} instance
+     * @param listener The listener notified as the workset volumes are serialized, or null
+     * @return The path of the stored workset resource
+     * @throws RegistryException  Thrown if a registry error occurs
+     * @throws JAXBException      Thrown if a serialization error occurs
+     * @throws UserStoreException Thrown if a user store error occurs
+     */
+    public static String putNewWorkset(Workset workset, String resPath, boolean isPublic,
+                                       UserRegistry registry, Marshaller.Listener listener)
+        throws RegistryException, JAXBException, UserStoreException {
+        Resource resource = createResourceFromWorkset(workset, registry, listener);
+        resource.setProperty(Constants.HTRC_PROP_PUBLIC, Boolean.toString(isPublic));
+
+        registry.beginTransaction();
+        try {
+            resPath = registry.put(resPath, resource);
+
+            WorksetMeta updatedMeta =
+                updateResourceCommunityMeta(resource, workset.getMetadata(), registry);
+            workset.setMetadata(updatedMeta);
+
+            if (isPublic) {
+                RegistryUtils.authorizeEveryone(resPath, registry, ActionConstants.GET);
+            }
+            else {
+                RegistryUtils.denyEveryone(resPath, registry, ActionConstants.GET);
+            }
+
+            registry.commitTransaction();
+        }
+        catch (RegistryException | UserStoreException | RuntimeException e) {
+            registry.rollbackTransaction();
+            // the segments were written outside of the transaction
+            try {
+                deleteSupersededSegments(getWorksetManifest(resource));
+            }
+            catch (RegistryException se) {
+                Log.warn("Cannot delete the segments of workset: " + resPath, se);
+            }
+            throw e;
+        }
+
+        invalidateWorksetMeta(resPath);
+        indexWorksetTags(resPath, workset.getMetadata().getTags());
+        indexWorksetVolumes(resPath);
+        WorksetSearchIndex.update(resPath, workset.getMetadata(), isPublic);
+        WorksetCounters.record(resPath, resource, isPublic);
+        if (isPublic) {
+            addPublicWorkset(resPath);
+        }
+
+        return resPath;
+    }
+
+    /**
+     * Assign a new revision to a workset resource; must be called whenever a workset is written
+     *
+     * @param resource The workset resource
+     */
+    public static void updateRevision(Resource resource) {
+        resource.setProperty(Constants.HTRC_PROP_REVISION, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Return the revision of a workset resource
+     *
+     * @param resource The workset resource
+     * @return The workset revision
+     */
+    public static String getRevision(Resource resource) {
+        String revision = resource.getProperty(Constants.HTRC_PROP_REVISION);
+        if (revision == null) {
+            // worksets stored before revisions were recorded
+            revision = Long.toHexString(resource.getLastModified().getTime());
+        }
+
+        return revision;
+    }
+
+    /**
+     * Store a list of volumes as the content of a workset resource, using the configured
+     * content encoding, and update the volume count and volume property names accordingly.
+     * The segments of the previous content, if any, are left in place for concurrent readers,
+     * and must be deleted with {@link #deleteSupersededSegments(WorksetManifest)} once the
+     * workset resource is committed.
+     *
+     * @param resource The workset resource
+     * @param volumes  The list of volumes
+     * @throws RegistryException Thrown if a registry error occurs
+     * @throws JAXBException     Thrown if a serialization error occurs
+     */
+    public static void setWorksetContent(Resource resource, List<Volume> volumes)
+        throws RegistryException, JAXBException {
+        setWorksetContent(resource, volumes, null);
+    }
+
+    private static void setWorksetContent(Resource resource, List<Volume> volumes,
+                                          Marshaller.Listener listener)
+        throws RegistryException, JAXBException {
+        WorksetContentEncoding encoding =
+            RegistryExtension.getConfig().getWorksetContentEncoding();
+
+        Set<String> propertyNames = new LinkedHashSet<>();
+        for (Volume volume : volumes) {
+            addPropertyNames(volume, propertyNames);
+        }
+
+        int segmentThreshold = RegistryExtension.getConfig().getWorksetSegmentThreshold();
+
+        if (segmentThreshold > 0 && volumes.size() > segmentThreshold) {
+            WorksetManifest manifest = putWorksetSegments(volumes, encoding, listener);
+            resource.setContent(manifest.toBytes());
+            resource.setProperty(Constants.HTRC_PROP_LAYOUT, Constants.HTRC_LAYOUT_SEGMENTED);
+        }
+        else {
+            resource.setContentStream(createWorksetContentStream(volumes, encoding, listener));
+            resource.removeProperty(Constants.HTRC_PROP_LAYOUT);
+        }
+
+        setWorksetContentProperties(resource, encoding, volumes.size(), propertyNames);
+    }
+
+    /**
+     * Apply a delta to the volumes of a workset resource: stored volumes whose ids are to be
+     * removed are dropped, and added volumes that are not already part of the workset are
+     * appended in the order given. The volume count and volume property names are updated
+     * accordingly. Once the workset resource is committed, the delta must be completed with
+     * {@link #completeVolumesDelta(Resource, VolumesDeltaResult)}, or discarded with
+     * {@link #discardVolumesDelta(VolumesDeltaResult)} if the workset is not committed.
+     * <p>
+     * The layout of the workset is preserved. For segmented worksets, the segments containing
+     * volumes to remove are found from the segment bitmaps (see {@link WorksetBitmaps}), and
+     * only those segments are read and rewritten; added volumes fill up the last segment before
+     * new segments are created. Changed segments are written under new names, and the segments
+     * they supersede are only deleted when the delta is completed. Since not all the segments
+     * are read, the volume property names of removed volumes are kept until the workset content
+     * is replaced. For other worksets, the stored volumes are streamed into the new content one
+     * at a time rather than unmarshalled as a whole.
+     *
+     * @param resource   The workset resource
+     * @param addVolumes The volumes to add
+     * @param removeIds  The ids of the volumes to remove
+     * @return The outcome of the delta
+     * @throws RegistryException Thrown if a registry error occurs
+     * @throws JAXBException     Thrown if a (de)serialization error occurs
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     */
+    public static VolumesDeltaResult applyVolumesDelta(Resource resource, List<Volume> addVolumes,
+                                                       java.util.Collection<String> removeIds)
+        throws RegistryException, JAXBException, SQLException {
+        WorksetContentEncoding encoding =
+            RegistryExtension.getConfig().getWorksetContentEncoding();
+
+        Map<String, Volume> pendingVolumes = new LinkedHashMap<>();
+        for (Volume volume : addVolumes) {
+            if (!pendingVolumes.containsKey(volume.getId())) {
+                pendingVolumes.put(volume.getId(), volume);
+            }
+        }
+        Set<String> removedIds = new HashSet<>(removeIds);
+
+        List<RoaringBitmap> bitmaps = WorksetBitmaps.getSegmentBitmaps(resource);
+        Map<String, Integer> addedNumbers =
+            VolumeIdDictionary.assignNumbers(pendingVolumes.keySet());
+        RoaringBitmap removedNumbers =
+            VolumeIdDictionary.toBitmap(VolumeIdDictionary.lookupNumbers(removedIds).values());
+
+        WorksetManifest manifest = getWorksetManifest(resource);
+        Set<String> propertyNames = new LinkedHashSet<>();
+        List<String> writtenSegments = new ArrayList<>();
+        List<String> supersededSegments = new ArrayList<>();
+        int volumeCount;
+        RoaringBitmap members = RoaringBitmap.or(bitmaps.iterator());
+        if (manifest != null) {
+            // volumes already part of the workset keep their position and properties
+            Iterator<String> pendingIds = pendingVolumes.keySet().iterator();
+            while (pendingIds.hasNext()) {
+                if (members.contains(addedNumbers.get(pendingIds.next()))) {
+                    pendingIds.remove();
+                }
+            }
+
+            List<String> storedPropertyNames = getVolumePropertyNames(resource);
+            if (storedPropertyNames != null) {
+                propertyNames.addAll(storedPropertyNames);
+            }
+
+            try {
+                volumeCount = applySegmentsDelta(
+                    manifest, bitmaps, pendingVolumes, addedNumbers, removedIds, removedNumbers,
+                    propertyNames, encoding, writtenSegments, supersededSegments);
+            }
+            catch (RegistryException | JAXBException | RuntimeException e) {
+                deleteSegments(writtenSegments);
+                throw e;
+            }
+            resource.setContent(manifest.toBytes());
+        }
+        else {
+            volumeCount =
+                applyContentDelta(resource, pendingVolumes, removedIds, propertyNames, encoding);
+
+            RoaringBitmap bitmap = bitmaps.get(0);
+            bitmap.andNot(removedNumbers);
+            bitmap.or(VolumeIdDictionary.toBitmap(addedNumbers.values()));
+        }
+
+        setWorksetContentProperties(resource, encoding, volumeCount, propertyNames);
+
+        RoaringBitmap updatedMembers = RoaringBitmap.or(bitmaps.iterator());
+        return new VolumesDeltaResult(volumeCount, bitmaps,
+                                      RoaringBitmap.andNot(updatedMembers, members),
+                                      RoaringBitmap.andNot(members, updatedMembers),
+                                      writtenSegments, supersededSegments);
+    }
+
+    /**
+     * Complete a volumes delta once the workset resource it was applied to is committed, by
+     * deleting the segments it superseded, storing the updated workset bitmaps under the new
+     * workset revision, and queueing the rows of the added and removed volumes for the volume to
+     * workset index (see {@link WorksetVolumeIndex#scheduleDelta}). Failures are logged rather
+     * than reported, since the workset has already been updated in the registry; the bitmaps
+     * will be recomputed when next needed, and the index reconciled when next rebuilt.
+     *
+     * @param resource The workset resource, as committed to the registry
+     * @param delta    The outcome of the delta
+     */
+    public static void completeVolumesDelta(Resource resource, VolumesDeltaResult delta) {
+        String resPath = resource.getPath();
+        deleteSegments(delta.getSupersededSegments());
+        try {
+            WorksetBitmaps.putSegmentBitmaps(resPath, getRevision(resource),
+                                             delta.getSegmentBitmaps());
+        }
+        catch (SQLException e) {
+            Log.warn("Could not store the bitmap of workset: " + resPath, e);
+        }
+        WorksetVolumeIndex.scheduleDelta(resPath, delta.getAddedNumbers(),
+                                         delta.getRemovedNumbers());
+    }
+
+    /**
+     * Discard a volumes delta whose workset resource was not committed, by deleting the
+     * segments it wrote
+     *
+     * @param delta The outcome of the delta
+     */
+    public static void discardVolumesDelta(VolumesDeltaResult delta) {
+        deleteSegments(delta.getWrittenSegments());
+    }
+
+    private static int applyContentDelta(Resource resource, Map<String, Volume> pendingVolumes,
+                                         Set<String> removedIds, Set<String> propertyNames,
+                                         WorksetContentEncoding encoding)
+        throws RegistryException, JAXBException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int volumeCount;
+
+        try (VolumeReader reader = openWorksetVolumesReader(resource);
+             VolumeWriter writer = openWorksetVolumesWriter(baos, encoding)) {
+            if (reader != null) {
+                Volume volume;
+                while ((volume = reader.read()) != null) {
+                    if (removedIds.contains(volume.getId())) {
+                        continue;
+                    }
+                    // volumes already part of the workset keep their position and properties
+                    pendingVolumes.remove(volume.getId());
+                    writer.write(volume);
+                    addPropertyNames(volume, propertyNames);
+                }
+            }
+
+            for (Volume volume : pendingVolumes.values()) {
+                writer.write(volume);
+                addPropertyNames(volume, propertyNames);
+            }
+
+            volumeCount = writer.getCount();
+        }
+        catch (IOException e) {
+            throw new JAXBException("Error encoding workset content", e);
+        }
+
+        resource.setContentStream(new ByteArrayInputStream(baos.toByteArray()));
+
+        return volumeCount;
+    }
+
+    private static int applySegmentsDelta(WorksetManifest manifest, List<RoaringBitmap> bitmaps,
+                                          Map<String, Volume> pendingVolumes,
+                                          Map<String, Integer> addedNumbers,
+                                          Set<String> removedIds, RoaringBitmap removedNumbers,
+                                          Set<String> propertyNames,
+                                          WorksetContentEncoding encoding,
+                                          List<String> writtenSegments,
+                                          List<String> supersededSegments)
+        throws RegistryException, JAXBException {
+        UserRegistry registry = RegistryUtils.getAdminRegistry();
+        int segmentSize = RegistryExtension.getConfig().getWorksetSegmentSize();
+        int lastIndex = manifest.getSegmentCount() - 1;
+        List<Volume> lastSegment = null;
+
+        // only the segments containing volumes to remove are read
+        for (int i = 0; i <= lastIndex; i++) {
+            RoaringBitmap bitmap = bitmaps.get(i);
+            if (!RoaringBitmap.intersects(bitmap, removedNumbers)) {
+                continue;
+            }
+
+            List<Volume> keptVolumes = new ArrayList<>();
+            for (Volume volume : getSegmentVolumes(registry, manifest.getSegmentPath(i))) {
+                if (!removedIds.contains(volume.getId())) {
+                    keptVolumes.add(volume);
+                }
+            }
+            bitmap.andNot(removedNumbers);
+
+            if (i == lastIndex) {
+                // written below, together with the added volumes
+                lastSegment = keptVolumes;
+            }
+            else {
+                supersededSegments.add(manifest.getSegmentPath(i));
+                manifest.replaceSegment(i, keptVolumes.size());
+                writtenSegments.add(manifest.getSegmentPath(i));
+                putSegment(registry, manifest.getSegmentPath(i), keptVolumes, encoding, null);
+            }
+        }
+
+        Iterator<Volume> pendingIterator = pendingVolumes.values().iterator();
+        int lastSize = (lastSegment != null) ? lastSegment.size() :
+                       manifest.getVolumeCount(lastIndex);
+        if (pendingIterator.hasNext() && lastSize < segmentSize) {
+            if (lastSegment == null) {
+                lastSegment = getSegmentVolumes(registry, manifest.getSegmentPath(lastIndex));
+            }
+            int from = lastSegment.size();
+            fillSegment(lastSegment, pendingIterator, segmentSize, propertyNames);
+            addNumbers(bitmaps.get(lastIndex), lastSegment.subList(from, lastSegment.size()),
+                       addedNumbers);
+        }
+
+        if (lastSegment != null) {
+            supersededSegments.add(manifest.getSegmentPath(lastIndex));
+            manifest.replaceSegment(lastIndex, lastSegment.size());
+            writtenSegments.add(manifest.getSegmentPath(lastIndex));
+            putSegment(registry, manifest.getSegmentPath(lastIndex), lastSegment, encoding, null);
+        }
+
+        while (pendingIterator.hasNext()) {
+            List<Volume> segment = new ArrayList<>();
+            fillSegment(segment, pendingIterator, segmentSize, propertyNames);
+            int index = manifest.addSegment(segment.size());
+            writtenSegments.add(manifest.getSegmentPath(index));
+            putSegment(registry, manifest.getSegmentPath(index), segment, encoding, null);
+
+            RoaringBitmap bitmap = new RoaringBitmap();
+            addNumbers(bitmap, segment, addedNumbers);
+            bitmaps.add(bitmap);
+        }
+
+        int volumeCount = 0;
+        for (int i = 0; i < manifest.getSegmentCount(); i++) {
+            volumeCount += manifest.getVolumeCount(i);
+        }
+
+        return volumeCount;
+    }
+
+    /**
+     * Add the numbers of a list of added volumes to a bitmap
+     */
+    private static void addNumbers(RoaringBitmap bitmap, List<Volume> volumes,
+                                   Map<String, Integer> addedNumbers) {
+        for (Volume volume : volumes) {
+            Integer number = addedNumbers.get(volume.getId());
+            if (number != null) {
+                bitmap.add(number);
+            }
+        }
+    }
+
+    private static void fillSegment(List<Volume> segment, Iterator<Volume> volumes,
+                                    int segmentSize, Set<String> propertyNames) {
+        while (segment.size() < segmentSize && volumes.hasNext()) {
+            Volume volume = volumes.next();
+            segment.add(volume);
+            addPropertyNames(volume, propertyNames);
+        }
+    }
+
+    /**
+     * Checks whether a workset resource is stored in the segmented layout
+     *
+     * @param resource The workset resource
+     * @return True if the workset volumes are stored in segments, False otherwise
+     */
+    public static boolean isSegmented(Resource resource) {
+        return Constants.HTRC_LAYOUT_SEGMENTED.equals(
+            resource.getProperty(Constants.HTRC_PROP_LAYOUT));
+    }
+
+    /**
+     * Retrieve the segment manifest of a workset resource
+     *
+     * @param resource The workset resource
+     * @return The manifest, or null if the workset is not stored in the segmented layout
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static WorksetManifest getWorksetManifest(Resource resource)
+        throws RegistryException {
+        if (!isSegmented(resource)) {
+            return null;
+        }
+
+        try {
+            return WorksetManifest.read(resource.getContentStream());
+        }
+        catch (IOException e) {
+            throw new RegistryException("Cannot read workset manifest for: "
+                                            + resource.getPath(), e);
+        }
+    }
+
+    /**
+     * Delete the segments of a workset manifest superseded by new workset content, once the
+     * workset resource is committed (or deleted). Failures are logged rather than reported, as
+     * leftover segments are no longer referenced by the workset.
+     *
+     * @param manifest The superseded manifest, or null if the workset was not segmented
+     */
+    public static void deleteSupersededSegments(WorksetManifest manifest) {
+        if (manifest != null) {
+            deleteSegments(Collections.singletonList(manifest.getSegmentsPath()));
+        }
+    }
+
+    /**
+     * Delete workset segments (or segments collections), logging rather than reporting failures
+     */
+    private static void deleteSegments(List<String> segmentPaths) {
+        for (String segmentPath : segmentPaths) {
+            try {
+                UserRegistry registry = RegistryUtils.getAdminRegistry();
+                if (registry.resourceExists(segmentPath)) {
+                    registry.delete(segmentPath);
+                }
+            }
+            catch (RegistryException e) {
+                Log.warn("Could not delete workset segment: " + segmentPath, e);
+            }
+        }
+    }
+
+    /**
+     * Store a list of volumes as segments in a new segments collection. Segments are accessed
+     * through the admin registry: access to them is granted by access to the workset resource.
+     */
+    private static WorksetManifest putWorksetSegments(List<Volume> volumes,
+                                                      WorksetContentEncoding encoding,
+                                                      Marshaller.Listener listener)
+        throws RegistryException, JAXBException {
+        UserRegistry registry = RegistryUtils.getAdminRegistry();
+        RegistryExtensionConfig config = RegistryExtension.getConfig();
+        int segmentSize = config.getWorksetSegmentSize();
+
+        WorksetManifest manifest = new WorksetManifest(
+            config.getWorksetSegmentPath() + "/" + UUID.randomUUID().toString());
+        for (int start = 0; start < volumes.size(); start += segmentSize) {
+            List<Volume> segment =
+                volumes.subList(start, Math.min(start + segmentSize, volumes.size()));
+            int index = manifest.addSegment(segment.size());
+            putSegment(registry, manifest.getSegmentPath(index), segment, encoding, listener);
+        }
+
+        return manifest;
+    }
+
+    private static void putSegment(UserRegistry registry, String segmentPath,
+                                   List<Volume> volumes, WorksetContentEncoding encoding,
+                                   Marshaller.Listener listener)
+        throws RegistryException, JAXBException {
+        Resource segment = registry.newResource();
+        segment.setMediaType(HTRCMediaTypes.VOLUME_XML);
+        segment.setContentStream(createWorksetContentStream(volumes, encoding, listener));
+        segment.setProperty(Constants.HTRC_PROP_CONTENT_ENCODING, encoding.getName());
+        registry.put(segmentPath, segment);
+    }
+
+    private static List<Volume> getSegmentVolumes(UserRegistry registry, String segmentPath)
+        throws RegistryException, JAXBException {
+        Resource segment = registry.get(segmentPath);
+
+        try (InputStream contentStream = openWorksetContentStream(segment)) {
+            return ((Volumes) createUnmarshaller().unmarshal(contentStream)).getVolumes();
+        }
+        catch (IOException e) {
+            throw new RegistryException("Error closing resource stream for: " + segmentPath, e);
+        }
+    }
+
+    private static void addPropertyNames(Volume volume, Set<String> propertyNames) {
+        for (Property property : volume.getProperties()) {
+            propertyNames.add(property.getName());
+        }
+    }
+
+    private static void setWorksetContentProperties(Resource resource,
+                                                    WorksetContentEncoding encoding,
+                                                    int volumeCount, Set<String> propertyNames) {
+        resource.setProperty(Constants.HTRC_PROP_CONTENT_ENCODING, encoding.getName());
+        resource.setProperty(Constants.HTRC_PROP_VOLCOUNT, Integer.toString(volumeCount));
+
+        if (propertyNames.isEmpty()) {
+            resource.removeProperty(Constants.HTRC_PROP_VOLUME_PROPERTIES);
+        }
+        else {
+            resource.setProperty(
+                Constants.HTRC_PROP_VOLUME_PROPERTIES, new ArrayList<>(propertyNames));
+        }
+    }
+
+    /**
+     * Return the names of the volume properties used by the volumes of a workset resource, as
+     * recorded when the workset content was stored
+     *
+     * @param resource The workset resource
+     * @return The volume property names, or null if the resource predates the recording of
+     * volume property names (in which case they have to be computed from the content)
+     */
+    public static List<String> getVolumePropertyNames(Resource resource) {
+        List<String> propertyNames =
+            resource.getPropertyValues(Constants.HTRC_PROP_VOLUME_PROPERTIES);
+
+        if (propertyNames == null &&
+            resource.getProperty(Constants.HTRC_PROP_CONTENT_ENCODING) != null) {
+            // the property names are recorded together with the content encoding, so a
+            // missing value for a resource that has the content encoding means "no properties"
+            propertyNames = Collections.emptyList();
+        }
+
+        return propertyNames;
+    }
+
     /**
      * Serialize a list of volumes to a stream
      *
      * @param volumesList The list of volumes
+     * @param encoding    The content encoding to use
      * @return The {@link InputStream} containing the serialized volumes
      * @throws JAXBException Thrown if a serialization error occurs
      */
-    public static InputStream createWorksetContentStream(List<Volume> volumesList)
+    public static InputStream createWorksetContentStream(
+        List<Volume> volumesList, WorksetContentEncoding encoding) throws JAXBException {
+        return createWorksetContentStream(volumesList, encoding, null);
+    }
+
+    private static InputStream createWorksetContentStream(
+        List<Volume> volumesList, WorksetContentEncoding encoding, Marshaller.Listener listener)
         throws JAXBException {
         Volumes volumes = new Volumes();
         volumes.getVolumes().addAll(volumesList);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        createMarshaller().marshal(volumes, baos);
+
+        try (OutputStream out = encoding.encode(baos)) {
+            Marshaller marshaller = createMarshaller(encoding.isFormatted());
+            marshaller.setListener(listener);
+            marshaller.marshal(volumes, out);
+        }
+        catch (IOException e) {
+            throw new JAXBException("Error encoding workset content", e);
+        }
 
         return new ByteArrayInputStream(baos.toByteArray());
     }
 
-    private static Marshaller createMarshaller() {
+    /**
+     * Open a {@link VolumeWriter} for serializing volumes one at a time to a stream
+     *
+     * @param out      The stream to write to (closed when the writer is closed)
+     * @param encoding The content encoding to use
+     * @return The volume writer
+     * @throws JAXBException Thrown if a serialization error occurs
+     */
+    public static VolumeWriter openWorksetVolumesWriter(
+        OutputStream out, WorksetContentEncoding encoding) throws JAXBException {
+        return new VolumeWriter(encoding.encode(out), createMarshaller(false));
+    }
+
+    private static Marshaller createMarshaller(boolean formatted) {
         try {
             Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
             marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
 
             return marshaller;
@@ -139,7 +846,11 @@ public class WorksetUtils {
     }
 
     /**
-     * Update community metadata for a registry resource representing a workset
+     * Update community metadata for a registry resource representing a workset. The resource
+     * tags are replaced by the tags in the metadata: only the tags that were dropped are
+     * removed, and the tags that were added are applied at once. Once the changes are
+     * committed, the returned tags should be indexed with
+     * {@link #indexWorksetTags(String, List)}.
      *
      * @param resource The resource
      * @param meta     The {@link WorksetMeta} instance holding the community metadata
@@ -151,15 +862,46 @@ public class WorksetUtils {
         Resource resource, WorksetMeta meta,
         UserRegistry registry) throws RegistryException {
         String resPath = resource.getPath();
-        for (String tag : meta.getTags()) {
-            registry.applyTag(resPath, tag);
+
+        Set<String> addedTags = new LinkedHashSet<>(meta.getTags());
+        addedTags.remove(null);
+
+        Set<String> existingTags = new HashSet<>();
+        for (Tag tag : registry.getTags(resPath)) {
+            existingTags.add(tag.getTagName());
         }
 
-        return getWorksetMetaFromResource(resource, registry);
+        // removals go first, so that re-applying a tag differing only in case is not undone
+        for (String tag : existingTags) {
+            if (!addedTags.contains(tag)) {
+                registry.removeTag(resPath, tag);
+            }
+        }
+
+        addedTags.removeAll(existingTags);
+        if (!addedTags.isEmpty()) {
+            // the registry splits a comma-separated list of tags into individual tags
+            StringBuilder tags = new StringBuilder();
+            for (String tag : addedTags) {
+                if (tags.length() > 0) {
+                    tags.append(',');
+                }
+                tags.append(tag);
+            }
+            registry.applyTag(resPath, tags.toString());
+        }
+
+        // not cached, since the changes are not committed yet
+        invalidateWorksetMeta(resPath);
+
+        return createWorksetMeta(resource, registry);
     }
 
     /**
-     * Construct a {@link WorksetMeta} from a registry resource
+     * Construct a {@link WorksetMeta} from a registry resource, reusing previously computed
+     * metadata for the same revision of the resource when available. Worksets stored before
+     * revisions were recorded are not cached, since their fallback revision is only as precise
+     * as the last-modified time.
      *
      * @param resource The resource
      * @param registry The {@link UserRegistry} instance
@@ -167,6 +909,23 @@ public class WorksetUtils {
      * @throws RegistryException Thrown if a registry error occurs
      */
     public static WorksetMeta getWorksetMetaFromResource(Resource resource, UserRegistry registry)
+        throws RegistryException {
+        String resPath = resource.getPath();
+        String revision = resource.getProperty(Constants.HTRC_PROP_REVISION);
+        if (_metaCache == null || revision == null) {
+            return createWorksetMeta(resource, registry);
+        }
+
+        WorksetMeta worksetMeta = _metaCache.get(resPath, revision);
+        if (worksetMeta == null) {
+            worksetMeta = createWorksetMeta(resource, registry);
+            _metaCache.put(resPath, revision, worksetMeta);
+        }
+
+        return worksetMeta;
+    }
+
+    private static WorksetMeta createWorksetMeta(Resource resource, UserRegistry registry)
         throws RegistryException {
         String resPath = resource.getPath();
         Tag[] tags = registry.getTags(resPath);
@@ -249,21 +1008,15 @@ public class WorksetUtils {
      */
     public static Set<String> getPublicWorksetsPathsViaSQL(ServletContext context)
         throws SQLException {
-        RegistryContext registryContext = RegistryExtension.getRegistryContext();
-        DataSource dataSource = ((JDBCDataAccessManager)
-            registryContext.getDataAccessManager()).getDataSource();
+        DataSource dataSource = RegistryUtils.getDataSource();
         String sqlPublicWorksets =
             context.getInitParameter(Constants.WEBXML_CONFIG_PUBLIC_WORKSETS_QUERY);
-        String allUsersWorksetsPathsSql =
-            RegistryExtension.getConfig().getUserWorksetsPath("%");
 
         Set<String> pathList = new LinkedHashSet<>();
 
         try (Connection conn = dataSource.getConnection()) {
             PreparedStatement stmt = conn.prepareStatement(sqlPublicWorksets);
-            stmt.setString(1, allUsersWorksetsPathsSql);
-            stmt.setString(2, "everyone");
-            stmt.setString(3, ActionConstants.GET);
+            stmt.setInt(1, RegistryUtils.getTenantId());
             stmt.closeOnCompletion();
 
             try (ResultSet results = stmt.executeQuery()) {
@@ -276,6 +1029,65 @@ public class WorksetUtils {
         return pathList;
     }
 
+    /**
+     * Retrieves the registry paths of a page of public worksets, ordered by workset name and then
+     * by the path of the containing collection
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @param after   The path of the last workset in the previous page, or null for the first page
+     * @param limit   The maximum number of worksets to retrieve
+     * @return The ordered set of paths of the public worksets in the page
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Set<String> getPublicWorksetsPathsViaSQL(
+        ServletContext context, String after, int limit) throws SQLException {
+        DataSource dataSource = RegistryUtils.getDataSource();
+        String sqlPublicWorksetsPage =
+            context.getInitParameter(Constants.WEBXML_CONFIG_PUBLIC_WORKSETS_PAGE_QUERY);
+        String afterName = (after != null) ? PagingUtils.getName(after) : "";
+        String afterParentPath = (after != null) ? PagingUtils.getParentPath(after) : "";
+
+        Set<String> pathList = new LinkedHashSet<>();
+
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(sqlPublicWorksetsPage);
+            stmt.setInt(1, RegistryUtils.getTenantId());
+            stmt.setString(2, afterName);
+            stmt.setString(3, afterName);
+            stmt.setString(4, afterParentPath);
+            stmt.setInt(5, limit);
+            stmt.closeOnCompletion();
+
+            try (ResultSet results = stmt.executeQuery()) {
+                while (results.next()) {
+                    pathList.add(results.getString("WS_PATH"));
+                }
+            }
+        }
+
+        return pathList;
+    }
+
+    /**
+     * Create the list of tag counts to return from the counts of the worksets having each tag
+     *
+     * @param counts The number of worksets having each tag, most frequent tags first
+     * @return The {@link TagCounts}
+     */
+    public static TagCounts createTagCounts(Map<String, Integer> counts) {
+        TagCounts tagCounts = new TagCounts();
+        List<TagCount> tagCountList = tagCounts.getTagCounts();
+
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            TagCount tagCount = new TagCount();
+            tagCount.setTag(entry.getKey());
+            tagCount.setCount(entry.getValue());
+            tagCountList.add(tagCount);
+        }
+
+        return tagCounts;
+    }
+
     /**
      * Converts a set of registry paths into a collection
      *
@@ -309,27 +1121,62 @@ public class WorksetUtils {
      */
     public static List<WorksetMeta> getWorksetsMeta(Collection collection, UserRegistry registry)
         throws RegistryException {
+        return getWorksetsMeta(collection, registry, null);
+    }
+
+    /**
+     * Get the list of workset metadata for worksets in a registry collection. When called with
+     * the admin registry and the batch queries are configured, the metadata is retrieved directly
+     * from the registry database in bulk; any worksets not found that way are retrieved
+     * individually through the registry.
+     *
+     * @param collection The registry collection
+     * @param registry   The {@link UserRegistry} instance
+     * @param context    The servlet context used to retrieve the query configuration (or null)
+     * @return The list of workset metadata
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static List<WorksetMeta> getWorksetsMeta(
+        Collection collection, UserRegistry registry, ServletContext context)
+        throws RegistryException {
 
         String[] children = collection.getChildren();
         List<WorksetMeta> worksetsMeta = new ArrayList<>(children.length);
 
-        for (String child : children) {
+        Map<String, WorksetMeta> loadedMeta = Collections.emptyMap();
+        if (WorksetMetaLoader.isConfigured(context) &&
+            RegistryUtils.getAdminUser().equals(registry.getUserName())) {
             try {
-                Resource resource = registry.get(child);
+                loadedMeta = WorksetMetaLoader.loadWorksetsMeta(Arrays.asList(children), context);
+            }
+            catch (SQLException e) {
+                Log.warn("getWorksetsMeta: Batch retrieval failed, using the registry instead", e);
+            }
+        }
+
+        List<String> pendingPaths = new ArrayList<>();
+        for (String child : children) {
+            if (!loadedMeta.containsKey(child)) {
+                pendingPaths.add(child);
+            }
+        }
 
-                if (Log.isDebugEnabled()) {
-                    LogUtils.logResource(Log, resource);
+        List<WorksetMeta> fetchedMeta = fetchResources(pendingPaths, registry,
+            new ResourceMapper<WorksetMeta>() {
+                public WorksetMeta map(Resource resource, UserRegistry registry)
+                    throws RegistryException {
+                    return WorksetUtils.getWorksetMetaFromResource(resource, registry);
                 }
+            });
 
-                WorksetMeta worksetMeta =
-                    WorksetUtils.getWorksetMetaFromResource(resource, registry);
-                worksetsMeta.add(worksetMeta);
+        Iterator<WorksetMeta> fetchedIter = fetchedMeta.iterator();
+        for (String child : children) {
+            WorksetMeta worksetMeta = loadedMeta.get(child);
+            if (worksetMeta == null) {
+                worksetMeta = fetchedIter.next();
             }
-            catch (AuthorizationFailedException afe) {
-                Log.warn(String.format(
-                    "getWorksets: Registry authorization failure for '%s' (Message: %s)",
-                    child, afe.getMessage()
-                ));
+            if (worksetMeta != null) {
+                worksetsMeta.add(worksetMeta);
             }
         }
 
@@ -347,27 +1194,105 @@ public class WorksetUtils {
     public static List<Workset> getWorksets(Collection collection, UserRegistry registry)
         throws RegistryException {
 
-        List<Workset> worksets = new ArrayList<>();
-        for (String child : collection.getChildren()) {
-            try {
-                Resource resource = registry.get(child);
+        List<Workset> worksets = fetchResources(
+            Arrays.asList(collection.getChildren()), registry,
+            new ResourceMapper<Workset>() {
+                public Workset map(Resource resource, UserRegistry registry)
+                    throws RegistryException {
+                    return WorksetUtils.getWorksetFromResource(resource, registry);
+                }
+            });
+        worksets.removeAll(Collections.singleton(null));
+
+        return worksets;
+    }
 
-                if (Log.isDebugEnabled()) {
-                    LogUtils.logResource(Log, resource);
+    /**
+     * Retrieves the registry resources at the given paths and maps each of them to a result.
+     * The resources are retrieved concurrently, if so configured. Resources that the registry
+     * user is not authorized to access, and resources that no longer exist (e.g. paths listed
+     * from an index before the resource was deleted), are skipped.
+     *
+     * @param paths    The resource paths
+     * @param registry The {@link UserRegistry} instance
+     * @param mapper   The mapping applied to each resource
+     * @param <T>      The result type
+     * @return The list of results, in the same order as the paths, containing null for each
+     * resource that was skipped
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    private static <T> List<T> fetchResources(List<String> paths, final UserRegistry registry,
+                                              final ResourceMapper<T> mapper)
+        throws RegistryException {
+
+        List<Callable<T>> tasks = new ArrayList<>(paths.size());
+        for (final String path : paths) {
+            tasks.add(new Callable<T>() {
+                public T call() throws RegistryException {
+                    try {
+                        Resource resource = registry.get(path);
+
+                        if (Log.isDebugEnabled()) {
+                            LogUtils.logResource(Log, resource);
+                        }
+
+                        return mapper.map(resource, registry);
+                    }
+                    catch (AuthorizationFailedException afe) {
+                        Log.warn(String.format(
+                            "getWorksets: Registry authorization failure for '%s' (Message: %s)",
+                            path, afe.getMessage()
+                        ));
+                        return null;
+                    }
+                    catch (ResourceNotFoundException e) {
+                        Log.debug("fetchResources: Skipping missing resource: " + path);
+                        return null;
+                    }
                 }
+            });
+        }
 
-                Workset workset = WorksetUtils.getWorksetFromResource(resource, registry);
-                worksets.add(workset);
+        List<T> results = new ArrayList<>(tasks.size());
+        ExecutorService executor = _fetchExecutor;
+
+        if (executor == null || tasks.size() < 2) {
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                }
+                catch (RegistryException | RuntimeException e) {
+                    throw e;
+                }
+                catch (Exception e) {
+                    throw new RegistryException("Error retrieving resources", e);
+                }
             }
-            catch (AuthorizationFailedException afe) {
-                Log.warn(String.format(
-                    "getWorksets: Registry authorization failure for '%s' (Message: %s)",
-                    child, afe.getMessage()
-                ));
+
+            return results;
+        }
+
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RegistryException("Interrupted while retrieving resources", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RegistryException) {
+                throw (RegistryException) cause;
             }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RegistryException("Error retrieving resources", cause);
         }
 
-        return worksets;
+        return results;
     }
 
     /**
@@ -428,14 +1353,139 @@ public class WorksetUtils {
      */
     public static Volumes getWorksetVolumesFromResource(Resource resource)
         throws JAXBException, RegistryException {
-        try (InputStream contentStream = resource.getContentStream()) {
-            return resource.getContent() != null ?
-                (Volumes) createUnmarshaller().unmarshal(contentStream) : null;
+        if (resource.getContent() == null) {
+            return null;
+        }
+
+        if (isSegmented(resource)) {
+            return getWorksetVolumesFromResource(resource, 0, null);
+        }
+
+        try (InputStream contentStream = openWorksetContentStream(resource)) {
+            return (Volumes) createUnmarshaller().unmarshal(contentStream);
+        }
+        catch (IOException e) {
+            throw new RegistryException("Error closing resource stream for: "
+                                            + resource.getPath(), e);
+        }
+    }
+
+    /**
+     * Construct a {@link Volumes} instance containing a range of the volumes stored in a
+     * registry resource, reading only the volumes in the range
+     *
+     * @param resource The resource
+     * @param offset   The position of the first volume to return
+     * @param limit    The maximum number of volumes to return, or null for no limit
+     * @return The volumes in the range
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static Volumes getWorksetVolumesFromResource(Resource resource, int offset,
+                                                        Integer limit)
+        throws JAXBException, RegistryException {
+        Volumes volumes = new Volumes();
+
+        try (VolumeReader reader = openWorksetVolumesReader(resource, offset, limit)) {
+            Volume volume;
+            while (reader != null && (volume = reader.read()) != null) {
+                volumes.getVolumes().add(volume);
+            }
         }
         catch (IOException e) {
             throw new RegistryException("Error closing resource stream for: "
                                             + resource.getPath(), e);
         }
+
+        return volumes;
+    }
+
+    /**
+     * Open a {@link VolumeReader} over the volumes stored in a registry resource, for reading
+     * the volumes one at a time without materializing the whole list
+     *
+     * @param resource The resource
+     * @return The volume reader (to be closed by the caller), or null if the resource has no
+     * content
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static VolumeReader openWorksetVolumesReader(Resource resource)
+        throws JAXBException, RegistryException {
+        return openWorksetVolumesReader(resource, 0, null);
+    }
+
+    /**
+     * Open a {@link VolumeReader} over a range of the volumes stored in a registry resource.
+     * The volumes preceding the range are skipped without being de-serialized, and segments
+     * that precede the range are not retrieved at all.
+     *
+     * @param resource The resource
+     * @param offset   The position of the first volume to read
+     * @param limit    The maximum number of volumes to read, or null for no limit
+     * @return The volume reader (to be closed by the caller), or null if the resource has no
+     * content
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static VolumeReader openWorksetVolumesReader(Resource resource, int offset,
+                                                       Integer limit)
+        throws JAXBException, RegistryException {
+        if (resource.getContent() == null) {
+            return null;
+        }
+
+        VolumeReader reader;
+        WorksetManifest manifest = getWorksetManifest(resource);
+        if (manifest != null) {
+            int index = 0;
+            while (index < manifest.getSegmentCount() && offset >= manifest.getVolumeCount(index)) {
+                offset -= manifest.getVolumeCount(index++);
+            }
+            reader = new VolumeReader(
+                new SegmentStreamSource(manifest, index), createUnmarshaller());
+        }
+        else {
+            reader = new VolumeReader(openWorksetContentStream(resource), createUnmarshaller());
+        }
+
+        if (offset > 0) {
+            reader.skip(offset);
+        }
+        if (limit != null) {
+            reader.setLimit(limit);
+        }
+
+        return reader;
+    }
+
+    /**
+     * Open a stream over the decoded (XML) content of a workset resource, or of a segment of a
+     * workset stored in the segmented layout. The content encoding is taken from the resource
+     * properties, or detected from the content itself for resources that predate the content
+     * encoding property.
+     *
+     * @param resource The workset resource
+     * @return The stream containing the serialized volumes
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static InputStream openWorksetContentStream(Resource resource)
+        throws RegistryException {
+        BufferedInputStream contentStream = new BufferedInputStream(resource.getContentStream());
+        WorksetContentEncoding encoding = WorksetContentEncoding.forName(
+            resource.getProperty(Constants.HTRC_PROP_CONTENT_ENCODING));
+
+        if (encoding == null) {
+            try {
+                encoding = WorksetContentEncoding.detect(contentStream);
+            }
+            catch (IOException e) {
+                throw new RegistryException("Error reading resource stream for: "
+                                                + resource.getPath(), e);
+            }
+        }
+
+        return encoding.decode(contentStream);
     }
 
     private static Unmarshaller createUnmarshaller() {
@@ -446,4 +1496,59 @@ public class WorksetUtils {
             throw new RuntimeException("Cannot create unmarshaller.", e);
         }
     }
+
+    /**
+     * Opens the segments of a workset stored in the segmented layout, in order
+     */
+    private static class SegmentStreamSource implements VolumeReader.StreamSource {
+
+        private final WorksetManifest _manifest;
+        private int _index;
+
+        SegmentStreamSource(WorksetManifest manifest, int index) {
+            _manifest = manifest;
+            _index = index;
+        }
+
+        public InputStream nextStream() throws JAXBException {
+            // skip segments emptied by the removal of their volumes
+            while (_index < _manifest.getSegmentCount() && _manifest.getVolumeCount(_index) == 0) {
+                _index++;
+            }
+            if (_index == _manifest.getSegmentCount()) {
+                return null;
+            }
+
+            String segmentPath = _manifest.getSegmentPath(_index++);
+            try {
+                Resource segment = RegistryUtils.getAdminRegistry().get(segmentPath);
+                return openWorksetContentStream(segment);
+            }
+            catch (RegistryException e) {
+                throw new JAXBException("Cannot retrieve workset segment: " + segmentPath, e);
+            }
+        }
+    }
+
+    private interface ResourceMapper<T> {
+
+        T map(Resource resource, UserRegistry registry) throws RegistryException;
+    }
+
+    static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String _namePrefix;
+        private final AtomicInteger _threadCount = new AtomicInteger();
+
+        DaemonThreadFactory(String namePrefix) {
+            _namePrefix = namePrefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            String name = _namePrefix + "-" + _threadCount.incrementAndGet();
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,448 @@
+package edu.illinois.i3.htrc.registry.api.utils;
+
+import edu.illinois.i3.htrc.registry.api.Constants;
+import edu.illinois.i3.htrc.registry.api.RegistryExtension;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import javax.servlet.ServletContext;
+import javax.xml.bind.JAXBException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+
+/**
+ * Maintains the reverse index of workset volumes, mapping each volume (by the number assigned
+ * to its id by the {@link VolumeIdDictionary}) to the worksets containing it, which is used for
+ * finding the worksets containing a volume without reading the volumes of every workset.
+ * <p>
+ * The index is updated after the workset is committed to the registry, off the request path:
+ * updates are queued and applied one at a time, in the order they were made. The volumes of a
+ * created or replaced workset are indexed from the workset bitmap (see {@link WorksetBitmaps}),
+ * while a volumes delta only inserts and deletes the rows of the volumes it added and removed.
+ * The volumes of a deleted workset are removed from the index. Should an update of the index
+ * fail, the index can be reconciled with the registry by rebuilding it. Until then, worksets
+ * found from the index that no longer exist are dropped when their metadata is read from the
+ * registry (see {@link WorksetUtils#getWorksetsMeta}), while worksets whose volumes were not
+ * indexed are not found.
+ *
+ * @author capitanu
+ */
+public class WorksetVolumeIndex {
+
+    /**
+     * The maximum number of volume ids that can be looked up at once
+     */
+    public static final int MAX_LOOKUP_VOLUMES = 10000;
+
+    private static final Log Log = LogFactory.getLog(WorksetVolumeIndex.class);
+
+    // the maximum number of parameters bound in a single IN (...) clause
+    private static final int MAX_IN_PARAMS = 500;
+
+    // the number of rows inserted at a time when indexing the volumes of a workset
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private static String _sqlClear;
+    private static String _sqlWorksets;
+    private static String _sqlInsert;
+    private static String _sqlDelete;
+    private static String _sqlDeleteVolumes;
+    private static String _sqlPublicLookup;
+    private static ExecutorService _executor;
+
+    /**
+     * Initialize the volume to workset index, creating it if necessary, and start the thread
+     * applying the index updates. The index is rebuilt in the background when empty or when
+     * requested, since the volumes of every workset are read.
+     *
+     * @param context The servlet context used to retrieve the query configuration
+     * @param rebuild True to rebuild the index from the registry, False to only build it if it
+     *                is empty
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void initialize(ServletContext context, boolean rebuild) throws SQLException {
+        String sqlCreate =
+            context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_CREATE_QUERY);
+        String sqlEmpty =
+            context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_EMPTY_QUERY);
+        _sqlClear = context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_CLEAR_QUERY);
+        _sqlWorksets =
+            context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_WORKSETS_QUERY);
+        _sqlInsert = context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_INSERT_QUERY);
+        _sqlDelete = context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_DELETE_QUERY);
+        _sqlDeleteVolumes =
+            context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_DELETE_VOLUMES_QUERY);
+        _sqlPublicLookup =
+            context.getInitParameter(Constants.WEBXML_CONFIG_VOLUME_INDEX_PUBLIC_LOOKUP_QUERY);
+
+        boolean empty;
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sqlCreate);
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(sqlEmpty)) {
+                stmt.setInt(1, RegistryUtils.getTenantId());
+                try (ResultSet results = stmt.executeQuery()) {
+                    empty = !results.next();
+                }
+            }
+        }
+
+        _executor = Executors.newSingleThreadExecutor(
+            new WorksetUtils.DaemonThreadFactory("volume-index"));
+
+        if (rebuild || empty) {
+            submit(new Runnable() {
+                public void run() {
+                    try {
+                        rebuild();
+                    }
+                    catch (Exception e) {
+                        Log.error("Cannot rebuild the volume to workset index", e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop applying the index updates; updates still queued are dropped, and will be reconciled
+     * the next time the index is rebuilt
+     */
+    public static void shutdown() {
+        if (_executor != null) {
+            _executor.shutdownNow();
+            _executor = null;
+        }
+    }
+
+    /**
+     * Queue the indexing of the volumes of a workset, replacing its indexed volumes; should be
+     * called after the workset is created or its content replaced. The workset is read when the
+     * update is applied, and skipped if it no longer exists. Failures are logged rather than
+     * reported.
+     *
+     * @param resPath The workset resource path
+     */
+    public static void scheduleUpdate(final String resPath) {
+        submit(new Runnable() {
+            public void run() {
+                try {
+                    update(RegistryUtils.getAdminRegistry().get(resPath));
+                }
+                catch (ResourceNotFoundException e) {
+                    // deleted since queued
+                }
+                catch (SQLException | JAXBException | RegistryException e) {
+                    Log.error("Cannot update the volume to workset index for workset: "
+                                  + resPath, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Queue a volumes delta of a workset; should be called after the delta is committed.
+     * Failures are logged rather than reported.
+     *
+     * @param resPath        The workset resource path
+     * @param addedNumbers   The numbers of the volumes added to the workset
+     * @param removedNumbers The numbers of the volumes removed from the workset
+     */
+    public static void scheduleDelta(final String resPath, final RoaringBitmap addedNumbers,
+                                     final RoaringBitmap removedNumbers) {
+        if (addedNumbers.isEmpty() && removedNumbers.isEmpty()) {
+            return;
+        }
+
+        submit(new Runnable() {
+            public void run() {
+                try {
+                    applyDelta(resPath, addedNumbers, removedNumbers);
+                }
+                catch (SQLException e) {
+                    Log.error("Cannot update the volume to workset index for workset: "
+                                  + resPath, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rebuild the volume to workset index from the volumes of the worksets in the registry.
+     * Worksets whose volumes cannot be read are logged and skipped.
+     *
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static void rebuild() throws SQLException, RegistryException {
+        Log.info("Rebuilding the volume to workset index");
+
+        String allUsersWorksetsPathsSql =
+            RegistryExtension.getConfig().getUserWorksetsPath("%");
+
+        List<String> worksetsPaths = new ArrayList<>();
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(_sqlClear)) {
+                stmt.setInt(1, RegistryUtils.getTenantId());
+                stmt.executeUpdate();
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(_sqlWorksets)) {
+                stmt.setInt(1, RegistryUtils.getTenantId());
+                stmt.setString(2, allUsersWorksetsPathsSql);
+                try (ResultSet results = stmt.executeQuery()) {
+                    while (results.next()) {
+                        worksetsPaths.add(results.getString("WS_PATH"));
+                    }
+                }
+            }
+        }
+
+        UserRegistry registry = RegistryUtils.getAdminRegistry();
+        int count = 0;
+        for (String resPath : worksetsPaths) {
+            try {
+                update(registry.get(resPath));
+                count++;
+            }
+            catch (ResourceNotFoundException e) {
+                // deleted since listed
+            }
+            catch (SQLException | JAXBException | RegistryException e) {
+                Log.warn("Could not index the volumes of workset: " + resPath, e);
+            }
+        }
+
+        Log.info(String.format("Indexed the volumes of %d worksets", count));
+    }
+
+    /**
+     * Replace the indexed volumes of a workset; must be called after the workset is committed,
+     * with the workset resource as stored in the registry
+     *
+     * @param resource The workset resource
+     * @throws SQLException      Thrown if an error occurs when communicating with the database
+     * @throws JAXBException     Thrown if a de-serialization error occurs
+     * @throws RegistryException Thrown if a registry error occurs
+     */
+    public static void update(Resource resource)
+        throws SQLException, JAXBException, RegistryException {
+        String resPath = resource.getPath();
+        RoaringBitmap bitmap = WorksetBitmaps.getBitmap(resource);
+
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement deleteStmt = conn.prepareStatement(_sqlDelete);
+                 PreparedStatement insertStmt = conn.prepareStatement(_sqlInsert)) {
+                setKey(deleteStmt, resPath);
+                deleteStmt.executeUpdate();
+
+                int batchSize = 0;
+                IntIterator numbers = bitmap.getIntIterator();
+                while (numbers.hasNext()) {
+                    setKey(insertStmt, resPath);
+                    insertStmt.setInt(4, numbers.next());
+                    insertStmt.addBatch();
+                    if (++batchSize == INSERT_BATCH_SIZE) {
+                        insertStmt.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+                if (batchSize > 0) {
+                    insertStmt.executeBatch();
+                }
+
+                conn.commit();
+            }
+            catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Apply a volumes delta of a workset to the index, deleting the rows of the removed volumes
+     * and inserting the rows of the added volumes. Rows of added volumes are deleted first, so
+     * that applying a delta already reflected in the index does not duplicate them.
+     *
+     * @param resPath        The workset resource path
+     * @param addedNumbers   The numbers of the volumes added to the workset
+     * @param removedNumbers The numbers of the volumes removed from the workset
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static void applyDelta(String resPath, RoaringBitmap addedNumbers,
+                                  RoaringBitmap removedNumbers) throws SQLException {
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement insertStmt = conn.prepareStatement(_sqlInsert)) {
+                deleteVolumes(conn, resPath, RoaringBitmap.or(addedNumbers, removedNumbers));
+
+                int batchSize = 0;
+                IntIterator numbers = addedNumbers.getIntIterator();
+                while (numbers.hasNext()) {
+                    setKey(insertStmt, resPath);
+                    insertStmt.setInt(4, numbers.next());
+                    insertStmt.addBatch();
+                    if (++batchSize == INSERT_BATCH_SIZE) {
+                        insertStmt.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+                if (batchSize > 0) {
+                    insertStmt.executeBatch();
+                }
+
+                conn.commit();
+            }
+            catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Queue the removal of the volumes of a workset from the index; should be called after the
+     * workset is deleted. Failures are logged rather than reported, since the workset has
+     * already been deleted from the registry; the rows left behind only cost a lookup of the
+     * workset, which is then dropped.
+     *
+     * @param resPath The workset resource path
+     */
+    public static void remove(final String resPath) {
+        submit(new Runnable() {
+            public void run() {
+                try (Connection conn = RegistryUtils.getDataSource().getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(_sqlDelete)) {
+                    setKey(stmt, resPath);
+                    stmt.executeUpdate();
+                }
+                catch (SQLException e) {
+                    Log.warn("Could not remove the volumes of workset: " + resPath, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Retrieves the registry paths of the public worksets containing each of a set of volumes,
+     * ordered by workset name and then by the path of the containing collection
+     *
+     * @param volumeIds The volume ids
+     * @return The ordered sets of paths of the public worksets containing each volume, in the
+     * order of the given volume ids (volumes not contained in any public workset are mapped to
+     * an empty set); a volume id given more than once is mapped once, at its first position
+     * @throws SQLException Thrown if an error occurs when communicating with the database
+     */
+    public static Map<String, Set<String>> getPublicWorksetsPaths(List<String> volumeIds)
+        throws SQLException {
+        Map<String, Set<String>> worksetsPaths = new LinkedHashMap<>();
+        for (String volumeId : volumeIds) {
+            worksetsPaths.put(volumeId, new LinkedHashSet<String>());
+        }
+
+        List<String> ids = new ArrayList<>(worksetsPaths.keySet());
+        try (Connection conn = RegistryUtils.getDataSource().getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IN_PARAMS) {
+                List<String> chunk = ids.subList(from, Math.min(from + MAX_IN_PARAMS, ids.size()));
+
+                StringBuilder placeholders = new StringBuilder();
+                for (int i = 0; i < chunk.size(); i++) {
+                    placeholders.append(i == 0 ? "?" : ", ?");
+                }
+
+                try (PreparedStatement stmt =
+                         conn.prepareStatement(String.format(_sqlPublicLookup, placeholders))) {
+                    int i = 1;
+                    stmt.setInt(i++, RegistryUtils.getTenantId());
+                    for (String id : chunk) {
+                        stmt.setString(i++, id);
+                    }
+
+                    try (ResultSet results = stmt.executeQuery()) {
+                        while (results.next()) {
+                            worksetsPaths.get(results.getString("VOL_ID"))
+                                         .add(results.getString("WS_PATH"));
+                        }
+                    }
+                }
+            }
+        }
+
+        return worksetsPaths;
+    }
+
+    private static void deleteVolumes(Connection conn, String resPath, RoaringBitmap numbers)
+        throws SQLException {
+        int[] values = numbers.toArray();
+        for (int from = 0; from < values.length; from += MAX_IN_PARAMS) {
+            int to = Math.min(from + MAX_IN_PARAMS, values.length);
+
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                placeholders.append(i == from ? "?" : ", ?");
+            }
+
+            try (PreparedStatement stmt =
+                     conn.prepareStatement(String.format(_sqlDeleteVolumes, placeholders))) {
+                setKey(stmt, resPath);
+                int param = 4;
+                for (int i = from; i < to; i++) {
+                    stmt.setInt(param++, values[i]);
+                }
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static void submit(Runnable task) {
+        ExecutorService executor = _executor;
+        if (executor == null) {
+            Log.warn("The volume to workset index is not running; the update was dropped");
+            return;
+        }
+
+        try {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            Log.warn("The volume to workset index is shutting down; the update was dropped");
+        }
+    }
+
+    private static void setKey(PreparedStatement stmt, String resPath) throws SQLException {
+        stmt.setInt(1, RegistryUtils.getTenantId());
+        stmt.setString(2, PagingUtils.getName(resPath));
+        stmt.setString(3, PagingUtils.getParentPath(resPath));
+    }
+}
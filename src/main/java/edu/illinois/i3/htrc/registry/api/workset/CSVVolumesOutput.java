@@ -0,0 +1,147 @@
+package edu.illinois.i3.htrc.registry.api.workset;
+
+import edu.illinois.i3.htrc.registry.api.utils.VolumeReader;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
+import edu.illinois.i3.htrc.registry.entities.workset.Property;
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.supercsv.cellprocessor.Optional;
+import org.supercsv.cellprocessor.constraint.NotNull;
+import org.supercsv.cellprocessor.ift.CellProcessor;
+import org.supercsv.encoder.CsvEncoder;
+import org.supercsv.encoder.DefaultCsvEncoder;
+import org.supercsv.io.CsvMapWriter;
+import org.supercsv.io.ICsvMapWriter;
+import org.supercsv.prefs.CsvPreference;
+import org.wso2.carbon.registry.core.Resource;
+
+/**
+ * Streams the volumes of a workset resource as CSV, one row per volume, as they are read from
+ * the registry
+ *
+ * @author capitanu
+ */
+class CSVVolumesOutput implements StreamingOutput {
+
+    private static final Log Log = LogFactory.getLog(CSVVolumesOutput.class);
+    private static final String VOLUME_ID_HEADER = "volume_id";
+
+    private final Resource _resource;
+    private final int _offset;
+    private final Integer _limit;
+
+    /**
+     * Constructor
+     *
+     * @param resource The workset resource
+     * @param offset   The position of the first volume to stream
+     * @param limit    The maximum number of volumes to stream, or null for no limit
+     */
+    CSVVolumesOutput(Resource resource, int offset, Integer limit) {
+        _resource = resource;
+        _offset = offset;
+        _limit = limit;
+    }
+
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        ICsvMapWriter csvWriter = null;
+
+        try {
+            // the CSV header names are recorded when the workset is stored; older worksets
+            // need an extra pass over the content to compute them
+            Collection<String> propertyNames =
+                WorksetUtils.getVolumePropertyNames(_resource);
+            if (propertyNames == null) {
+                propertyNames = getVolumePropertyNames();
+            }
+
+            final CsvEncoder csvEncoder = new DefaultCsvEncoder();
+            final CsvPreference csvPreference =
+                new CsvPreference.Builder(CsvPreference.EXCEL_PREFERENCE)
+                    .useEncoder(csvEncoder).build();
+            csvWriter = new CsvMapWriter(
+                new BufferedWriter(new OutputStreamWriter(output, "UTF-8")), csvPreference);
+
+            int size = propertyNames.size() + 1; // +1 for volume_id
+            String[] header = new String[size];
+            CellProcessor[] processors = new CellProcessor[size];
+
+            // set up the header
+            header[0] = VOLUME_ID_HEADER;
+            processors[0] = new NotNull();
+            Iterator<String> propNameIter = propertyNames.iterator();
+            for (int i = 1; i < size; i++) {
+                header[i] = propNameIter.next();
+                processors[i] = new Optional();
+            }
+
+            csvWriter.writeHeader(header);
+
+            Map<String, Object> rowData = new HashMap<String, Object>();
+            try (VolumeReader volumeReader =
+                     WorksetUtils.openWorksetVolumesReader(_resource, _offset, _limit)) {
+                Volume volume;
+                while ((volume = volumeReader.read()) != null) {
+                    rowData.clear();
+
+                    // add the volume id
+                    rowData.put(VOLUME_ID_HEADER, volume.getId());
+
+                    // add the volume properties
+                    for (Property property : volume.getProperties()) {
+                        if (Log.isDebugEnabled()) {
+                            Log.debug(String.format(
+                                "getVolumesAsCSV: vol: %s propName: %s propValue: %s",
+                                volume.getId(), property.getName(),
+                                property.getValue()
+                            ));
+                        }
+                        rowData.put(property.getName(), property.getValue());
+                    }
+
+                    csvWriter.write(rowData, header, processors);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            Log.error("Error streaming volumes for: " + _resource.getPath(), e);
+            throw new WebApplicationException(e);
+        }
+        finally {
+            if (csvWriter != null) {
+                csvWriter.flush();
+            }
+        }
+    }
+
+    private Set<String> getVolumePropertyNames() throws Exception {
+        Set<String> propertyNames = new LinkedHashSet<String>();
+
+        try (VolumeReader volumeReader = WorksetUtils.openWorksetVolumesReader(_resource)) {
+            Volume volume;
+            while ((volume = volumeReader.read()) != null) {
+                for (Property property : volume.getProperties()) {
+                    propertyNames.add(property.getName());
+                }
+            }
+        }
+
+        return propertyNames;
+    }
+}
@@ -0,0 +1,204 @@
+package edu.illinois.i3.htrc.registry.api.workset;
+
+import edu.illinois.i3.htrc.registry.api.utils.VolumeReader;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
+import edu.illinois.i3.htrc.registry.entities.workset.Property;
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.DatatypeConverter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.core.session.UserRegistry;
+
+/**
+ * Streams the worksets of a registry collection as newline-delimited JSON, one workset per
+ * line, in the form:
+ * <pre>
+ * {"metadata":{"name":..,"description":..,"author":..,"created":..,"lastModified":..,
+ *   "tags":[..],"volumeCount":..,"public":..},
+ *  "volumes":[{"id":..,"properties":[{"name":..,"value":..},..]},..]}
+ * </pre>
+ * Worksets are read from the registry one at a time, and their volumes are written as they
+ * are read, so the memory used does not depend on the number or the size of the worksets.
+ *
+ * @author capitanu
+ */
+class NDJSONWorksetsOutput implements StreamingOutput {
+
+    private static final Log Log = LogFactory.getLog(NDJSONWorksetsOutput.class);
+
+    private final Collection _collection;
+    private final UserRegistry _registry;
+
+    /**
+     * Constructor
+     *
+     * @param collection The registry collection holding the worksets
+     * @param registry   The {@link UserRegistry} instance used to read the worksets
+     */
+    NDJSONWorksetsOutput(Collection collection, UserRegistry registry) {
+        _collection = collection;
+        _registry = registry;
+    }
+
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        String resPath = _collection.getPath();
+
+        try {
+            String[] worksetPaths = _collection.getChildren();
+            Arrays.sort(worksetPaths);
+
+            for (String worksetPath : worksetPaths) {
+                resPath = worksetPath;
+                Resource resource;
+                try {
+                    resource = _registry.get(worksetPath);
+                }
+                catch (ResourceNotFoundException e) {
+                    // deleted since the collection was read
+                    continue;
+                }
+                if (resource instanceof Collection) {
+                    continue;
+                }
+
+                writeWorkset(writer, resource);
+                writer.write('\n');
+                // each workset is sent as soon as it is complete
+                writer.flush();
+            }
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            Log.error("Error exporting worksets at: " + resPath, e);
+            throw new WebApplicationException(e);
+        }
+        finally {
+            writer.flush();
+        }
+    }
+
+    private void writeWorkset(Writer writer, Resource resource) throws Exception {
+        WorksetMeta meta = WorksetUtils.getWorksetMetaFromResource(resource, _registry);
+
+        writer.write("{\"metadata\":{\"name\":");
+        writeString(writer, meta.getName());
+        writer.write(",\"description\":");
+        writeString(writer, meta.getDescription());
+        writer.write(",\"author\":");
+        writeString(writer, meta.getAuthor());
+        writer.write(",\"created\":");
+        writeDate(writer, meta.getCreated());
+        writer.write(",\"lastModified\":");
+        writeDate(writer, meta.getLastModified());
+        writer.write(",\"tags\":[");
+        boolean first = true;
+        for (String tag : meta.getTags()) {
+            if (!first) {
+                writer.write(',');
+            }
+            writeString(writer, tag);
+            first = false;
+        }
+        writer.write("],\"volumeCount\":");
+        writer.write(String.valueOf(meta.getVolumeCount()));
+        writer.write(",\"public\":");
+        writer.write(String.valueOf(meta.isPublic()));
+        writer.write("},\"volumes\":[");
+
+        try (VolumeReader volumeReader = WorksetUtils.openWorksetVolumesReader(resource)) {
+            Volume volume;
+            first = true;
+            while (volumeReader != null && (volume = volumeReader.read()) != null) {
+                if (!first) {
+                    writer.write(',');
+                }
+                writeVolume(writer, volume);
+                first = false;
+            }
+        }
+
+        writer.write("]}");
+    }
+
+    private static void writeVolume(Writer writer, Volume volume) throws IOException {
+        writer.write("{\"id\":");
+        writeString(writer, volume.getId());
+
+        if (!volume.getProperties().isEmpty()) {
+            writer.write(",\"properties\":[");
+            boolean first = true;
+            for (Property property : volume.getProperties()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                writer.write("{\"name\":");
+                writeString(writer, property.getName());
+                writer.write(",\"value\":");
+                writeString(writer, property.getValue());
+                writer.write('}');
+                first = false;
+            }
+            writer.write(']');
+        }
+
+        writer.write('}');
+    }
+
+    private static void writeDate(Writer writer, Calendar date) throws IOException {
+        writeString(writer, (date != null) ? DatatypeConverter.printDateTime(date) : null);
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,69 @@
+package edu.illinois.i3.htrc.registry.api.workset;
+
+import edu.illinois.i3.htrc.registry.api.utils.VolumeReader;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
+import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.registry.core.Resource;
+
+/**
+ * Streams the volume ids of a workset resource as plain text, one per line, as they are read
+ * from the registry
+ *
+ * @author capitanu
+ */
+class PlainTextVolumesOutput implements StreamingOutput {
+
+    private static final Log Log = LogFactory.getLog(PlainTextVolumesOutput.class);
+
+    private final Resource _resource;
+    private final int _offset;
+    private final Integer _limit;
+
+    /**
+     * Constructor
+     *
+     * @param resource The workset resource
+     * @param offset   The position of the first volume to stream
+     * @param limit    The maximum number of volumes to stream, or null for no limit
+     */
+    PlainTextVolumesOutput(Resource resource, int offset, Integer limit) {
+        _resource = resource;
+        _offset = offset;
+        _limit = limit;
+    }
+
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+
+        try (VolumeReader volumeReader =
+                 WorksetUtils.openWorksetVolumesReader(_resource, _offset, _limit)) {
+            Volume volume;
+            boolean first = true;
+            while (volumeReader != null && (volume = volumeReader.read()) != null) {
+                if (!first) {
+                    writer.write('\n');
+                }
+                writer.write(volume.getId());
+                first = false;
+            }
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            Log.error("Error streaming volumes for: " + _resource.getPath(), e);
+            throw new WebApplicationException(e);
+        }
+
+        writer.flush();
+    }
+}
@@ -1,10 +1,13 @@
 package edu.illinois.i3.htrc.registry.api.workset;
 
 import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 /**
@@ -24,30 +27,51 @@ public interface PublicVolumesAPI {
     /**
      * GET: Retrieve workset volumes as plain-text
      *
-     * @param author The workset author
+     * @param request Injected Request
+     * @param author  The workset author
+     * @param offset  The position of the first volume to return
+     * @param limit   The maximum number of volumes to return, or null for all volumes
      * @return The workset volumes
      */
     @GET
     @Produces(MediaType.TEXT_PLAIN)
-    Response getVolumesAsPlainText(@QueryParam("author") String author);
+    Response getVolumesAsPlainText(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit);
 
     /**
      * GET: Retrieve workset volumes as CSV
      *
-     * @param author The workset author
+     * @param request Injected Request
+     * @param author  The workset author
+     * @param offset  The position of the first volume to return
+     * @param limit   The maximum number of volumes to return, or null for all volumes
      * @return The workset volumes
      */
     @GET
     @Produces(HTRCMediaTypes.TEXT_CSV)
-    Response getVolumesAsCSV(@QueryParam("author") String author);
+    Response getVolumesAsCSV(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit);
 
     /**
      * GET: Retrieve the workset volumes as XML or JSON
      *
-     * @param author The workset author
+     * @param request Injected Request
+     * @param author  The workset author
+     * @param offset  The position of the first volume to return
+     * @param limit   The maximum number of volumes to return, or null for all volumes
      * @return The workset volumes
      */
     @GET
-    Response getVolumes(@QueryParam("author") String author);
+    Response getVolumes(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit);
 
 }
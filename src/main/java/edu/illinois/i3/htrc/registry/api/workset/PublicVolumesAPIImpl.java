@@ -3,32 +3,25 @@ package edu.illinois.i3.htrc.registry.api.workset;
 import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
 import edu.illinois.i3.htrc.registry.api.RegistryExtension;
 import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
+import edu.illinois.i3.htrc.registry.api.utils.CacheUtils;
+import edu.illinois.i3.htrc.registry.api.utils.PagingUtils;
 import edu.illinois.i3.htrc.registry.api.utils.RegistryUtils;
 import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
-import edu.illinois.i3.htrc.registry.entities.workset.Property;
-import edu.illinois.i3.htrc.registry.entities.workset.Volume;
 import edu.illinois.i3.htrc.registry.entities.workset.Volumes;
-import java.io.StringWriter;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Map;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.supercsv.cellprocessor.Optional;
-import org.supercsv.cellprocessor.constraint.NotNull;
-import org.supercsv.cellprocessor.ift.CellProcessor;
-import org.supercsv.encoder.CsvEncoder;
-import org.supercsv.encoder.DefaultCsvEncoder;
-import org.supercsv.io.CsvMapWriter;
-import org.supercsv.io.ICsvMapWriter;
-import org.supercsv.prefs.CsvPreference;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
 import org.wso2.carbon.registry.core.secure.AuthorizationFailedException;
@@ -42,7 +35,6 @@ import org.wso2.carbon.registry.core.session.UserRegistry;
 public class PublicVolumesAPIImpl implements PublicVolumesAPI {
 
     private static final Log Log = LogFactory.getLog(PublicVolumesAPIImpl.class);
-    private static final String VOLUME_ID_HEADER = "volume_id";
 
     private final String _worksetId;
     private final UserRegistry _registry;
@@ -56,11 +48,20 @@ public class PublicVolumesAPIImpl implements PublicVolumesAPI {
 
     @GET
     @Produces(MediaType.TEXT_PLAIN)
-    public Response getVolumesAsPlainText(@QueryParam("author") String author) {
+    public Response getVolumesAsPlainText(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit) {
         Log.debug(
             String.format("getVolumesAsPlainText(public): id=%s, author=%s", _worksetId, author)
         );
 
+        Response invalidRange = PagingUtils.checkRange(offset, limit);
+        if (invalidRange != null) {
+            return invalidRange;
+        }
+
         try {
             if (author == null) {
                 return Response.status(Status.BAD_REQUEST)
@@ -77,17 +78,19 @@ public class PublicVolumesAPIImpl implements PublicVolumesAPI {
             }
 
             Resource resource = _registry.get(resPath);
-            Volumes volumes = WorksetUtils.getWorksetVolumesFromResource(resource);
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.TEXT_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
+            }
 
-            StringBuilder sb = new StringBuilder();
-            if (volumes != null) {
-                for (Volume volume : volumes.getVolumes()) {
-                    sb.append('\n').append(volume.getId());
-                }
+            if (resource.getContent() == null) {
+                return CacheUtils.ok("", resource, variant).build();
             }
 
-            String response = sb.length() > 0 ? sb.substring(1) : sb.toString();
-            return Response.ok(response).build();
+            StreamingOutput output = new PlainTextVolumesOutput(resource, offset, limit);
+            return CacheUtils.ok(output, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -107,9 +110,18 @@ public class PublicVolumesAPIImpl implements PublicVolumesAPI {
 
     @GET
     @Produces(HTRCMediaTypes.TEXT_CSV)
-    public Response getVolumesAsCSV(@QueryParam("author") String author) {
+    public Response getVolumesAsCSV(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit) {
         Log.debug(String.format("getVolumesAsCSV(public): id=%s, author=%s", _worksetId, author));
 
+        Response invalidRange = PagingUtils.checkRange(offset, limit);
+        if (invalidRange != null) {
+            return invalidRange;
+        }
+
         try {
             if (author == null) {
                 return Response.status(Status.BAD_REQUEST)
@@ -126,70 +138,19 @@ public class PublicVolumesAPIImpl implements PublicVolumesAPI {
             }
 
             Resource resource = _registry.get(resPath);
-            Volumes volumes = WorksetUtils.getWorksetVolumesFromResource(resource);
-            StringWriter csvData = new StringWriter();
-
-            if (volumes != null) {
-                // compute the CSV header names
-                LinkedHashSet<String> propertyNames = new LinkedHashSet<String>();
-                for (Volume volume : volumes.getVolumes()) {
-                    for (Property property : volume.getProperties()) {
-                        propertyNames.add(property.getName());
-                    }
-                }
-
-                ICsvMapWriter csvWriter = null;
-                try {
-                    final CsvEncoder csvEncoder = new DefaultCsvEncoder();
-                    final CsvPreference csvPreference =
-                        new CsvPreference.Builder(CsvPreference.EXCEL_PREFERENCE)
-                            .useEncoder(csvEncoder).build();
-                    csvWriter = new CsvMapWriter(csvData, csvPreference);
-
-                    int size = propertyNames.size() + 1; // +1 for volume_id
-                    String[] header = new String[size];
-                    CellProcessor[] processors = new CellProcessor[size];
-
-                    // set up the header
-                    header[0] = VOLUME_ID_HEADER;
-                    processors[0] = new NotNull();
-                    Iterator<String> propNameIter = propertyNames.iterator();
-                    for (int i = 1; i < size; i++) {
-                        header[i] = propNameIter.next();
-                        processors[i] = new Optional();
-                    }
-
-                    csvWriter.writeHeader(header);
-
-                    Map<String, Object> rowData = new HashMap<String, Object>();
-                    for (Volume volume : volumes.getVolumes()) {
-                        rowData.clear();
-
-                        // add the volume id
-                        rowData.put(VOLUME_ID_HEADER, volume.getId());
-
-                        // add the volume properties
-                        for (Property property : volume.getProperties()) {
-                            Log.debug(String.format(
-                                "getVolumesAsCSV(public): vol: %s propName: %s propValue: %s",
-                                volume.getId(), property.getName(),
-                                property.getValue()
-                            ));
-                            rowData.put(property.getName(), property.getValue());
-                        }
-
-                        csvWriter.write(rowData, header, processors);
-                    }
-                }
-                finally {
-                    if (csvWriter != null) {
-                        csvWriter.close();
-                    }
-                }
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.CSV_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
             }
 
-            String response = csvData.toString();
-            return Response.ok(response).build();
+            if (resource.getContent() == null) {
+                return CacheUtils.ok("", resource, variant).build();
+            }
+
+            StreamingOutput output = new CSVVolumesOutput(resource, offset, limit);
+            return CacheUtils.ok(output, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -208,9 +169,18 @@ public class PublicVolumesAPIImpl implements PublicVolumesAPI {
     }
 
     @GET
-    public Response getVolumes(@QueryParam("author") String author) {
+    public Response getVolumes(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit) {
         Log.debug(String.format("getVolumes(public): id=%s, author=%s", _worksetId, author));
 
+        Response invalidRange = PagingUtils.checkRange(offset, limit);
+        if (invalidRange != null) {
+            return invalidRange;
+        }
+
         try {
             if (author == null) {
                 return Response.status(Status.BAD_REQUEST)
@@ -227,12 +197,16 @@ public class PublicVolumesAPIImpl implements PublicVolumesAPI {
             }
 
             Resource resource = _registry.get(resPath);
-            Volumes volumes = WorksetUtils.getWorksetVolumesFromResource(resource);
-            if (volumes == null) {
-                volumes = new Volumes();
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.VOLUME_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
             }
+            Volumes volumes =
+                WorksetUtils.getWorksetVolumesFromResource(resource, offset, limit);
 
-            return Response.ok(volumes).build();
+            return CacheUtils.ok(volumes, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
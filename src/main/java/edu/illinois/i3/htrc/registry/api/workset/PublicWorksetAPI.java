@@ -6,7 +6,9 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 /**
@@ -26,11 +28,14 @@ public interface PublicWorksetAPI {
     /**
      * GET: Retrieve a public workset
      *
-     * @param author The workset author
+     * @param request Injected Request
+     * @param author  The workset author
      * @return The retrieved workset
      */
     @GET
-    Response getPublicWorkset(@QueryParam("author") String author);
+    Response getPublicWorkset(
+        @Context Request request,
+        @QueryParam("author") String author);
 
     /**
      * Get access to the API for managing this workset's volumes
@@ -43,12 +48,15 @@ public interface PublicWorksetAPI {
     /**
      * GET: Retrieve a workset's metadata
      *
-     * @param author The workset author, or null to use current user
+     * @param request Injected Request
+     * @param author  The workset author, or null to use current user
      * @return The retrieved workset metadata
      */
     @GET
     @Path("/metadata")
-    Response getPublicWorksetMeta(@QueryParam("author") String author);
+    Response getPublicWorksetMeta(
+        @Context Request request,
+        @QueryParam("author") String author);
 
     /**
      * Get access to the API for managing this workset's tags
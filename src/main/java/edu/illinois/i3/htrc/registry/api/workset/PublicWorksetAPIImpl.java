@@ -2,6 +2,7 @@ package edu.illinois.i3.htrc.registry.api.workset;
 
 import edu.illinois.i3.htrc.registry.api.RegistryExtension;
 import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
+import edu.illinois.i3.htrc.registry.api.utils.CacheUtils;
 import edu.illinois.i3.htrc.registry.api.utils.LogUtils;
 import edu.illinois.i3.htrc.registry.api.utils.RegistryUtils;
 import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
@@ -10,9 +11,13 @@ import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Variant;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.registry.core.Resource;
@@ -41,7 +46,9 @@ public class PublicWorksetAPIImpl implements PublicWorksetAPI {
     }
 
     @GET
-    public Response getPublicWorkset(@QueryParam("author") String author) {
+    public Response getPublicWorkset(
+        @Context Request request,
+        @QueryParam("author") String author) {
         Log.debug(String.format("getPublicWorkset: id=%s, author=%s", _worksetId, author));
 
         try {
@@ -60,6 +67,12 @@ public class PublicWorksetAPIImpl implements PublicWorksetAPI {
             }
 
             Resource resource = _registry.get(resPath);
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.WORKSET_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
+            }
 
             if (Log.isDebugEnabled()) {
                 LogUtils.logResource(Log, resource);
@@ -67,7 +80,7 @@ public class PublicWorksetAPIImpl implements PublicWorksetAPI {
 
             Workset workset = WorksetUtils.getWorksetFromResource(resource, _registry);
 
-            return Response.ok(workset).build();
+            return CacheUtils.ok(workset, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -92,7 +105,9 @@ public class PublicWorksetAPIImpl implements PublicWorksetAPI {
 
     @GET
     @Path("/metadata")
-    public Response getPublicWorksetMeta(@QueryParam("author") String author) {
+    public Response getPublicWorksetMeta(
+        @Context Request request,
+        @QueryParam("author") String author) {
         Log.debug(String.format("getPublicWorksetMeta: id=%s, author=%s", _worksetId, author));
 
         try {
@@ -111,6 +126,12 @@ public class PublicWorksetAPIImpl implements PublicWorksetAPI {
             }
 
             Resource resource = _registry.get(resPath);
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.WORKSET_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
+            }
 
             if (Log.isDebugEnabled()) {
                 LogUtils.logResource(Log, resource);
@@ -120,7 +141,7 @@ public class PublicWorksetAPIImpl implements PublicWorksetAPI {
             Workset workset = new Workset();
             workset.setMetadata(worksetMeta);
 
-            return Response.ok(workset).build();
+            return CacheUtils.ok(workset, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
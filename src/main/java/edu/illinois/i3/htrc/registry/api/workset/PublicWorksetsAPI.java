@@ -1,12 +1,20 @@
 package edu.illinois.i3.htrc.registry.api.workset;
 
 import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
+import java.io.InputStream;
+import java.util.List;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 /**
  * JAX-RS Interface for accessing public Worksets
@@ -24,12 +32,82 @@ import javax.ws.rs.core.Response;
 public interface PublicWorksetsAPI {
 
     /**
-     * GET: Retrieve list of public worksets
+     * GET: Retrieve list of public worksets. When a limit or cursor is given, worksets are
+     * ordered by name and returned one page at a time; the next page, if any, is linked from
+     * the "Link" response header. When a tag is given, only the worksets having the tag are
+     * returned.
      *
+     * @param uriInfo Injected UriInfo
+     * @param tag     The tag the worksets must have (default: any)
+     * @param limit   The maximum number of worksets to return (default: no limit)
+     * @param cursor  The cursor identifying the page to return (default: first page)
      * @return The list of public worksets
      */
     @GET
-    Response getPublicWorksets();
+    Response getPublicWorksets(
+        @Context UriInfo uriInfo,
+        @QueryParam("tag") String tag,
+        @QueryParam("limit") Integer limit,
+        @QueryParam("after") String cursor);
+
+    /**
+     * GET: Retrieve the number of public worksets having each tag, most frequent tags first
+     *
+     * @param limit The maximum number of tags to return (default: no limit)
+     * @return The tag counts
+     */
+    @GET
+    @Path("/tags")
+    @Produces({
+        HTRCMediaTypes.TAG_XML,
+        HTRCMediaTypes.TAG_JSON,
+        MediaType.APPLICATION_XML,
+        MediaType.APPLICATION_JSON
+    })
+    Response getPublicTagCounts(@QueryParam("limit") Integer limit);
+
+    /**
+     * GET: Search the public worksets by name, description, author and tags, most relevant
+     * worksets first. The next page of results, if any, is linked from the "Link" response
+     * header, and the total number of matching worksets is returned in the "X-Total-Count"
+     * response header.
+     *
+     * @param uriInfo Injected UriInfo
+     * @param query   The search query (Lucene query syntax; all terms must match)
+     * @param offset  The number of results to skip (default: 0)
+     * @param limit   The maximum number of worksets to return (default: 20, max: 1000)
+     * @return The list of matching public worksets
+     */
+    @GET
+    @Path("/search")
+    Response searchPublicWorksets(
+        @Context UriInfo uriInfo,
+        @QueryParam("q") String query,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @DefaultValue("20") @QueryParam("limit") int limit);
+
+    /**
+     * GET: Retrieve the public worksets containing each of the given volumes
+     *
+     * @param volumeIds The volume ids (at most 10000)
+     * @return The public worksets containing each volume, in the order of the given volume ids;
+     * a volume id given more than once is reported once, at its first position
+     */
+    @GET
+    @Path("/containing")
+    Response getPublicWorksetsContaining(@QueryParam("volumeId") List<String> volumeIds);
+
+    /**
+     * POST: Retrieve the public worksets containing each of the volumes in a batch
+     *
+     * @param volumeIds The stream of volume ids, one volume id per line (at most 10000)
+     * @return The public worksets containing each volume, in the order of the given volume ids;
+     * a volume id given more than once is reported once, at its first position
+     */
+    @POST
+    @Path("/containing")
+    @Consumes(MediaType.TEXT_PLAIN)
+    Response lookupPublicWorksetsContaining(InputStream volumeIds);
 
     /**
      * Get access to a {@link PublicWorksetAPI} instance used to manage individual public worksets
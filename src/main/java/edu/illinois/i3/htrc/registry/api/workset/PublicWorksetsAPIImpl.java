@@ -2,23 +2,48 @@ package edu.illinois.i3.htrc.registry.api.workset;
 
 import edu.illinois.i3.htrc.registry.api.RegistryExtension;
 import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
+import edu.illinois.i3.htrc.registry.api.utils.PagingUtils;
 import edu.illinois.i3.htrc.registry.api.utils.RegistryUtils;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetSearchIndex;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetTagIndex;
 import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetVolumeIndex;
+import edu.illinois.i3.htrc.registry.entities.workset.VolumeWorksets;
+import edu.illinois.i3.htrc.registry.entities.workset.VolumesWorksets;
 import edu.illinois.i3.htrc.registry.entities.workset.Workset;
 import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
 import edu.illinois.i3.htrc.registry.entities.workset.Worksets;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.queryparser.classic.ParseException;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.core.session.UserRegistry;
@@ -50,16 +75,67 @@ public class PublicWorksetsAPIImpl implements PublicWorksetsAPI {
     }
 
     @GET
-    public Response getPublicWorksets() {
-        Log.info("getPublicWorksets");
+    public Response getPublicWorksets(
+        @Context UriInfo uriInfo,
+        @QueryParam("tag") String tag,
+        @QueryParam("limit") Integer limit,
+        @QueryParam("after") String cursor) {
+        Log.info(String.format("getPublicWorksets: tag=%s, limit=%s, after=%s",
+                               tag, limit, cursor));
+
+        if (limit != null && limit < 1) {
+            String errorMsg = String.format("Invalid limit: %d", limit);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        if (tag != null && tag.trim().isEmpty()) {
+            return Response.status(Status.BAD_REQUEST).entity("Invalid tag")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        boolean paged = (limit != null || cursor != null);
+        String after = null;
+        if (cursor != null) {
+            try {
+                after = PagingUtils.decodeCursor(cursor);
+            }
+            catch (IllegalArgumentException e) {
+                String errorMsg = String.format("Invalid cursor: %s", cursor);
+                return Response.status(Status.BAD_REQUEST).entity(errorMsg)
+                               .type(MediaType.TEXT_PLAIN).build();
+            }
+        }
 
         Worksets worksets = new Worksets();
         List<Workset> worksetList = worksets.getWorksets();
+        List<String> pagePaths = null;
 
         try {
             UserRegistry adminRegistry = RegistryUtils.getAdminRegistry();
-            Collection publicWorksets = WorksetUtils.getPublicWorksetsCollection(_context);
-            List<WorksetMeta> metas = WorksetUtils.getWorksetsMeta(publicWorksets, adminRegistry);
+            int pageLimit = (limit != null) ? limit : Integer.MAX_VALUE;
+            Collection publicWorksets;
+            if (tag != null) {
+                if (paged) {
+                    pagePaths = new ArrayList<>(
+                        WorksetTagIndex.getPublicWorksetsPaths(tag, after, pageLimit));
+                    publicWorksets = WorksetUtils.getCollectionFromPaths(pagePaths);
+                }
+                else {
+                    publicWorksets = WorksetUtils.getCollectionFromPaths(
+                        WorksetTagIndex.getPublicWorksetsPaths(tag));
+                }
+            }
+            else if (paged) {
+                pagePaths = new ArrayList<>(
+                    WorksetUtils.getPublicWorksetsPathsViaSQL(_context, after, pageLimit));
+                publicWorksets = WorksetUtils.getCollectionFromPaths(pagePaths);
+            }
+            else {
+                publicWorksets = WorksetUtils.getPublicWorksetsCollection(_context);
+            }
+            List<WorksetMeta> metas =
+                WorksetUtils.getWorksetsMeta(publicWorksets, adminRegistry, _context);
             for (WorksetMeta meta : metas) {
                 Workset workset = new Workset();
                 workset.setMetadata(meta);
@@ -72,7 +148,198 @@ public class PublicWorksetsAPIImpl implements PublicWorksetsAPI {
             return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
         }
 
-        return Response.ok(worksets).build();
+        ResponseBuilder response = Response.ok(worksets);
+        if (pagePaths != null && limit != null && pagePaths.size() == limit) {
+            String lastPath = pagePaths.get(pagePaths.size() - 1);
+            response.header(HttpHeaders.LINK, PagingUtils.getNextLink(uriInfo, lastPath));
+        }
+
+        return response.build();
+    }
+
+    @GET
+    @Path("/tags")
+    public Response getPublicTagCounts(@QueryParam("limit") Integer limit) {
+        Log.info(String.format("getPublicTagCounts: limit=%s", limit));
+
+        if (limit != null && limit < 1) {
+            String errorMsg = String.format("Invalid limit: %d", limit);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        try {
+            Map<String, Integer> counts = WorksetTagIndex.getPublicTagCounts(limit);
+            return Response.ok(WorksetUtils.createTagCounts(counts)).build();
+        }
+        catch (Exception e) {
+            Log.error("getPublicTagCounts", e);
+            String errorMsg = String.format("Cannot retrieve tag counts: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+    }
+
+    @GET
+    @Path("/search")
+    public Response searchPublicWorksets(
+        @Context UriInfo uriInfo,
+        @QueryParam("q") String query,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @DefaultValue("20") @QueryParam("limit") int limit) {
+        Log.info(String.format("searchPublicWorksets: q=%s, offset=%d, limit=%d",
+                               query, offset, limit));
+
+        if (query == null || query.trim().isEmpty()) {
+            return Response.status(Status.BAD_REQUEST).entity("Missing search query")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        if (limit < 1 || limit > WorksetSearchIndex.MAX_PAGE_SIZE) {
+            String errorMsg = String.format("Invalid limit: %d", limit);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        if (offset < 0 || offset > WorksetSearchIndex.MAX_RESULTS - limit) {
+            String errorMsg = String.format("Invalid offset: %d", offset);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        Worksets worksets = new Worksets();
+        List<Workset> worksetList = worksets.getWorksets();
+        WorksetSearchIndex.SearchResults results;
+
+        try {
+            UserRegistry registry = RegistryUtils.getAdminRegistry();
+            results = WorksetSearchIndex.search(query, null, false, offset, limit);
+
+            Collection matches = WorksetUtils.getCollectionFromPaths(results.getPaths());
+            List<WorksetMeta> metas = WorksetUtils.getWorksetsMeta(matches, registry, _context);
+            for (WorksetMeta meta : metas) {
+                Workset workset = new Workset();
+                workset.setMetadata(meta);
+                worksetList.add(workset);
+            }
+        }
+        catch (ParseException e) {
+            String errorMsg = String.format("Invalid search query: %s", e.getMessage());
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+        catch (Exception e) {
+            Log.error("searchPublicWorksets", e);
+            String errorMsg = String.format("Cannot search public worksets: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+
+        ResponseBuilder response = Response.ok(worksets);
+        response.header(PagingUtils.TOTAL_COUNT_HEADER, results.getTotalHits());
+        int nextOffset = offset + limit;
+        if (nextOffset < Math.min(results.getTotalHits(), WorksetSearchIndex.MAX_RESULTS)) {
+            response.header(HttpHeaders.LINK, PagingUtils.getNextOffsetLink(uriInfo, nextOffset));
+        }
+
+        return response.build();
+    }
+
+    @GET
+    @Path("/containing")
+    public Response getPublicWorksetsContaining(@QueryParam("volumeId") List<String> volumeIds) {
+        Log.info(String.format("getPublicWorksetsContaining: volumes=%d", volumeIds.size()));
+
+        return findPublicWorksetsContaining(volumeIds);
+    }
+
+    @POST
+    @Path("/containing")
+    @Consumes(MediaType.TEXT_PLAIN)
+    public Response lookupPublicWorksetsContaining(InputStream volumeIds) {
+        List<String> ids = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(volumeIds, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    // stop reading once over the limit, rather than reading the whole body
+                    if (ids.size() == WorksetVolumeIndex.MAX_LOOKUP_VOLUMES) {
+                        return tooManyVolumeIds(String.format(
+                            "more than %d", WorksetVolumeIndex.MAX_LOOKUP_VOLUMES));
+                    }
+                    ids.add(line);
+                }
+            }
+        }
+        catch (IOException e) {
+            Log.error("lookupPublicWorksetsContaining", e);
+            String errorMsg = String.format("Cannot read volume IDs: %s", e.toString());
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        Log.info(String.format("lookupPublicWorksetsContaining: volumes=%d", ids.size()));
+
+        return findPublicWorksetsContaining(ids);
+    }
+
+    private Response findPublicWorksetsContaining(List<String> volumeIds) {
+        if (volumeIds.isEmpty()) {
+            return Response.status(Status.BAD_REQUEST).entity("Missing volume IDs")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        if (volumeIds.size() > WorksetVolumeIndex.MAX_LOOKUP_VOLUMES) {
+            return tooManyVolumeIds(Integer.toString(volumeIds.size()));
+        }
+
+        try {
+            Map<String, Set<String>> volumesPaths =
+                WorksetVolumeIndex.getPublicWorksetsPaths(volumeIds);
+
+            // the metadata of each workset is retrieved once, however many volumes it contains
+            Set<String> worksetsPaths = new LinkedHashSet<>();
+            for (Set<String> paths : volumesPaths.values()) {
+                worksetsPaths.addAll(paths);
+            }
+
+            UserRegistry adminRegistry = RegistryUtils.getAdminRegistry();
+            Map<String, WorksetMeta> worksetsMeta = new HashMap<>();
+            for (WorksetMeta meta : WorksetUtils.getWorksetsMeta(
+                WorksetUtils.getCollectionFromPaths(worksetsPaths), adminRegistry, _context)) {
+                worksetsMeta.put(_config.getWorksetPath(meta.getName(), meta.getAuthor()), meta);
+            }
+
+            VolumesWorksets volumesWorksets = new VolumesWorksets();
+            for (Map.Entry<String, Set<String>> entry : volumesPaths.entrySet()) {
+                VolumeWorksets volumeWorksets = new VolumeWorksets();
+                volumeWorksets.setVolumeId(entry.getKey());
+                for (String path : entry.getValue()) {
+                    WorksetMeta meta = worksetsMeta.get(path);
+                    if (meta != null) {
+                        Workset workset = new Workset();
+                        workset.setMetadata(meta);
+                        volumeWorksets.getWorksets().add(workset);
+                    }
+                }
+                volumesWorksets.getVolumeWorksets().add(volumeWorksets);
+            }
+
+            return Response.ok(volumesWorksets).build();
+        }
+        catch (Exception e) {
+            Log.error("findPublicWorksetsContaining", e);
+            String errorMsg = String.format("Cannot retrieve public worksets: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+    }
+
+    private Response tooManyVolumeIds(String count) {
+        String errorMsg = String.format("Too many volume IDs: %s (max: %d)", count,
+                                        WorksetVolumeIndex.MAX_LOOKUP_VOLUMES);
+        return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                       .build();
     }
 
     @Path("/{worksetId}")
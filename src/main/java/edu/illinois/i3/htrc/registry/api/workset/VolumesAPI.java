@@ -1,13 +1,18 @@
 package edu.illinois.i3.htrc.registry.api.workset;
 
 import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
+import edu.illinois.i3.htrc.registry.api.PATCH;
 import edu.illinois.i3.htrc.registry.entities.workset.Volumes;
+import edu.illinois.i3.htrc.registry.entities.workset.VolumesDelta;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 /**
@@ -27,31 +32,52 @@ public interface VolumesAPI {
     /**
      * GET: Retrieve workset volumes as plain-text
      *
-     * @param author The workset author, or null to use current user
+     * @param request Injected Request
+     * @param author  The workset author, or null to use current user
+     * @param offset  The position of the first volume to return
+     * @param limit   The maximum number of volumes to return, or null for all volumes
      * @return The workset volumes
      */
     @GET
     @Produces(MediaType.TEXT_PLAIN)
-    Response getVolumesAsPlainText(@QueryParam("author") String author);
+    Response getVolumesAsPlainText(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit);
 
     /**
      * GET: Retrieve workset volumes as CSV
      *
-     * @param author The workset author, or null to use current user
+     * @param request Injected Request
+     * @param author  The workset author, or null to use current user
+     * @param offset  The position of the first volume to return
+     * @param limit   The maximum number of volumes to return, or null for all volumes
      * @return The workset volumes
      */
     @GET
     @Produces(HTRCMediaTypes.TEXT_CSV)
-    Response getVolumesAsCSV(@QueryParam("author") String author);
+    Response getVolumesAsCSV(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit);
 
     /**
      * GET: Retrieve the workset volumes as XML or JSON
      *
-     * @param author The workset author, or null to use current user
+     * @param request Injected Request
+     * @param author  The workset author, or null to use current user
+     * @param offset  The position of the first volume to return
+     * @param limit   The maximum number of volumes to return, or null for all volumes
      * @return The workset volumes
      */
     @GET
-    Response getVolumes(@QueryParam("author") String author);
+    Response getVolumes(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit);
 
     /**
      * PUT: Replace the volumes of a workset
@@ -66,4 +92,17 @@ public interface VolumesAPI {
     })
     Response replaceVolumes(Volumes volumes);
 
+    /**
+     * PATCH: Add and/or remove workset volumes, leaving the other volumes unchanged
+     *
+     * @param delta The volumes to add and the ids of the volumes to remove
+     * @return 204 if successful, error otherwise
+     */
+    @PATCH
+    @Consumes({
+        HTRCMediaTypes.VOLUME_XML,
+        HTRCMediaTypes.VOLUME_JSON
+    })
+    Response updateVolumes(VolumesDelta delta);
+
 }
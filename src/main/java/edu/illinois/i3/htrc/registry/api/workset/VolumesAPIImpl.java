@@ -1,37 +1,39 @@
 package edu.illinois.i3.htrc.registry.api.workset;
 
-import edu.illinois.i3.htrc.registry.api.Constants;
 import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
+import edu.illinois.i3.htrc.registry.api.PATCH;
 import edu.illinois.i3.htrc.registry.api.RegistryExtension;
 import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
+import edu.illinois.i3.htrc.registry.api.utils.CacheUtils;
+import edu.illinois.i3.htrc.registry.api.utils.PagingUtils;
 import edu.illinois.i3.htrc.registry.api.utils.RegistryUtils;
+import edu.illinois.i3.htrc.registry.api.utils.VolumeIdValidator;
+import edu.illinois.i3.htrc.registry.api.utils.VolumesDeltaResult;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetCounters;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetManifest;
 import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
-import edu.illinois.i3.htrc.registry.entities.workset.Property;
 import edu.illinois.i3.htrc.registry.entities.workset.Volume;
 import edu.illinois.i3.htrc.registry.entities.workset.Volumes;
-import java.io.StringWriter;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Map;
+import edu.illinois.i3.htrc.registry.entities.workset.VolumesDelta;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.supercsv.cellprocessor.Optional;
-import org.supercsv.cellprocessor.constraint.NotNull;
-import org.supercsv.cellprocessor.ift.CellProcessor;
-import org.supercsv.encoder.CsvEncoder;
-import org.supercsv.encoder.DefaultCsvEncoder;
-import org.supercsv.io.CsvMapWriter;
-import org.supercsv.io.ICsvMapWriter;
-import org.supercsv.prefs.CsvPreference;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
 import org.wso2.carbon.registry.core.secure.AuthorizationFailedException;
@@ -45,7 +47,6 @@ import org.wso2.carbon.registry.core.session.UserRegistry;
 public class VolumesAPIImpl implements VolumesAPI {
 
     private static final Log Log = LogFactory.getLog(VolumesAPIImpl.class);
-    private static final String VOLUME_ID_HEADER = "volume_id";
 
     private final String _worksetId;
     private final UserRegistry _registry;
@@ -61,29 +62,40 @@ public class VolumesAPIImpl implements VolumesAPI {
 
     @GET
     @Produces(MediaType.TEXT_PLAIN)
-    public Response getVolumesAsPlainText(@QueryParam("author") String author) {
+    public Response getVolumesAsPlainText(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit) {
         Log.debug(
             String.format("getVolumesAsPlainText: id=%s, author=%s, user=%s",
                           _worksetId, author, _userName)
         );
 
+        Response invalidRange = PagingUtils.checkRange(offset, limit);
+        if (invalidRange != null) {
+            return invalidRange;
+        }
+
         try {
             if (author == null) {
                 author = _userName;
             }
             String resPath = _config.getWorksetPath(_worksetId, author);
             Resource resource = _registry.get(resPath);
-            Volumes volumes = WorksetUtils.getWorksetVolumesFromResource(resource);
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.TEXT_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
+            }
 
-            StringBuilder sb = new StringBuilder();
-            if (volumes != null) {
-                for (Volume volume : volumes.getVolumes()) {
-                    sb.append('\n').append(volume.getId());
-                }
+            if (resource.getContent() == null) {
+                return CacheUtils.ok("", resource, variant).build();
             }
 
-            String response = sb.length() > 0 ? sb.substring(1) : sb.toString();
-            return Response.ok(response).build();
+            StreamingOutput output = new PlainTextVolumesOutput(resource, offset, limit);
+            return CacheUtils.ok(output, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -103,82 +115,40 @@ public class VolumesAPIImpl implements VolumesAPI {
 
     @GET
     @Produces(HTRCMediaTypes.TEXT_CSV)
-    public Response getVolumesAsCSV(@QueryParam("author") String author) {
+    public Response getVolumesAsCSV(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit) {
         Log.debug(
             String.format("getVolumesAsCSV: id=%s, author=%s, user=%s",
                           _worksetId, author, _userName)
         );
 
+        Response invalidRange = PagingUtils.checkRange(offset, limit);
+        if (invalidRange != null) {
+            return invalidRange;
+        }
+
         try {
             if (author == null) {
                 author = _userName;
             }
             String resPath = _config.getWorksetPath(_worksetId, author);
             Resource resource = _registry.get(resPath);
-            Volumes volumes = WorksetUtils.getWorksetVolumesFromResource(resource);
-            StringWriter csvData = new StringWriter();
-
-            if (volumes != null) {
-                // compute the CSV header names
-                LinkedHashSet<String> propertyNames = new LinkedHashSet<String>();
-                for (Volume volume : volumes.getVolumes()) {
-                    for (Property property : volume.getProperties()) {
-                        propertyNames.add(property.getName());
-                    }
-                }
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.CSV_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
+            }
 
-                ICsvMapWriter csvWriter = null;
-                try {
-                    final CsvEncoder csvEncoder = new DefaultCsvEncoder();
-                    final CsvPreference csvPreference =
-                        new CsvPreference.Builder(CsvPreference.EXCEL_PREFERENCE)
-                            .useEncoder(csvEncoder).build();
-                    csvWriter = new CsvMapWriter(csvData, csvPreference);
-
-                    int size = propertyNames.size() + 1; // +1 for volume_id
-                    String[] header = new String[size];
-                    CellProcessor[] processors = new CellProcessor[size];
-
-                    // set up the header
-                    header[0] = VOLUME_ID_HEADER;
-                    processors[0] = new NotNull();
-                    Iterator<String> propNameIter = propertyNames.iterator();
-                    for (int i = 1; i < size; i++) {
-                        header[i] = propNameIter.next();
-                        processors[i] = new Optional();
-                    }
-
-                    csvWriter.writeHeader(header);
-
-                    Map<String, Object> rowData = new HashMap<String, Object>();
-                    for (Volume volume : volumes.getVolumes()) {
-                        rowData.clear();
-
-                        // add the volume id
-                        rowData.put(VOLUME_ID_HEADER, volume.getId());
-
-                        // add the volume properties
-                        for (Property property : volume.getProperties()) {
-                            Log.debug(String.format(
-                                "getVolumesAsCSV: vol: %s propName: %s propValue: %s",
-                                volume.getId(), property.getName(),
-                                property.getValue()
-                            ));
-                            rowData.put(property.getName(), property.getValue());
-                        }
-
-                        csvWriter.write(rowData, header, processors);
-                    }
-                }
-                finally {
-                    if (csvWriter != null) {
-                        csvWriter.close();
-                    }
-                }
+            if (resource.getContent() == null) {
+                return CacheUtils.ok("", resource, variant).build();
             }
 
-            String response = csvData.toString();
-            return Response.ok(response).build();
+            StreamingOutput output = new CSVVolumesOutput(resource, offset, limit);
+            return CacheUtils.ok(output, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -197,23 +167,36 @@ public class VolumesAPIImpl implements VolumesAPI {
     }
 
     @GET
-    public Response getVolumes(@QueryParam("author") String author) {
+    public Response getVolumes(
+        @Context Request request,
+        @QueryParam("author") String author,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("limit") Integer limit) {
         Log.debug(
             String.format("getVolumes: id=%s, author=%s, user=%s", _worksetId, author, _userName)
         );
 
+        Response invalidRange = PagingUtils.checkRange(offset, limit);
+        if (invalidRange != null) {
+            return invalidRange;
+        }
+
         try {
             if (author == null) {
                 author = _userName;
             }
             String resPath = _config.getWorksetPath(_worksetId, author);
             Resource resource = _registry.get(resPath);
-            Volumes volumes = WorksetUtils.getWorksetVolumesFromResource(resource);
-            if (volumes == null) {
-                volumes = new Volumes();
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.VOLUME_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
             }
+            Volumes volumes =
+                WorksetUtils.getWorksetVolumesFromResource(resource, offset, limit);
 
-            return Response.ok(volumes).build();
+            return CacheUtils.ok(volumes, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -239,16 +222,36 @@ public class VolumesAPIImpl implements VolumesAPI {
     public Response replaceVolumes(Volumes volumes) {
         Log.debug(String.format("replaceVolumes: id=%s, user=%s", _worksetId, _userName));
 
+        List<String> invalidIds = VolumeIdValidator.getInvalidVolumeIds(volumes.getVolumes());
+        if (!invalidIds.isEmpty()) {
+            String errorMsg = VolumeIdValidator.getErrorMessage(invalidIds);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg)
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
         try {
             String resPath = _config.getWorksetPath(_worksetId, _userName);
-            Resource resource = _registry.get(resPath);
-            resource.setContentStream(
-                WorksetUtils.createWorksetContentStream(volumes.getVolumes()));
-            resource.setProperty(
-                Constants.HTRC_PROP_VOLCOUNT,
-                Integer.toString(volumes.getVolumes().size())
-            );
-            _registry.put(resPath, resource);
+            WorksetManifest supersededManifest;
+
+            _registry.beginTransaction();
+            try {
+                Resource resource = _registry.get(resPath);
+                supersededManifest = WorksetUtils.getWorksetManifest(resource);
+                WorksetUtils.setWorksetContent(resource, volumes.getVolumes());
+                WorksetUtils.updateRevision(resource);
+                _registry.put(resPath, resource);
+                _registry.commitTransaction();
+            }
+            catch (Exception e) {
+                _registry.rollbackTransaction();
+                throw e;
+            }
+
+            WorksetUtils.invalidateWorksetMeta(resPath);
+            WorksetUtils.deleteSupersededSegments(supersededManifest);
+            WorksetUtils.indexWorksetVolumes(resPath);
+            WorksetCounters.recordVolumeCount(resPath, volumes.getVolumes().size());
+
             return Response.ok(volumes).build();
         }
         catch (ResourceNotFoundException e) {
@@ -262,4 +265,73 @@ public class VolumesAPIImpl implements VolumesAPI {
         }
     }
 
+    @PATCH
+    @Consumes({
+        HTRCMediaTypes.VOLUME_XML,
+        HTRCMediaTypes.VOLUME_JSON
+    })
+    public Response updateVolumes(VolumesDelta delta) {
+        Log.debug(String.format("updateVolumes: id=%s, user=%s", _worksetId, _userName));
+
+        List<Volume> addVolumes = delta.getAdd();
+        List<String> invalidIds = VolumeIdValidator.getInvalidVolumeIds(addVolumes);
+        if (!invalidIds.isEmpty()) {
+            String errorMsg = VolumeIdValidator.getErrorMessage(invalidIds);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg)
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        Set<String> removeIds = new HashSet<>(delta.getRemove());
+        for (Volume volume : addVolumes) {
+            if (removeIds.contains(volume.getId())) {
+                String errorMsg = "Invalid volume to add: " + volume.getId();
+                return Response.status(Status.BAD_REQUEST).entity(errorMsg)
+                               .type(MediaType.TEXT_PLAIN).build();
+            }
+        }
+
+        try {
+            String resPath = _config.getWorksetPath(_worksetId, _userName);
+            Resource resource;
+            VolumesDeltaResult result = null;
+
+            _registry.beginTransaction();
+            try {
+                resource = _registry.get(resPath);
+                result = WorksetUtils.applyVolumesDelta(resource, addVolumes, removeIds);
+                WorksetUtils.updateRevision(resource);
+                _registry.put(resPath, resource);
+                _registry.commitTransaction();
+            }
+            catch (Exception e) {
+                _registry.rollbackTransaction();
+                if (result != null) {
+                    WorksetUtils.discardVolumesDelta(result);
+                }
+                throw e;
+            }
+
+            int volumeCount = result.getVolumeCount();
+            WorksetUtils.invalidateWorksetMeta(resPath);
+            WorksetUtils.completeVolumesDelta(resource, result);
+            WorksetCounters.recordVolumeCount(resPath, volumeCount);
+
+            Log.debug(String.format("updateVolumes: id=%s, added=%d, removed=%d, count=%d",
+                                    _worksetId, addVolumes.size(), removeIds.size(),
+                                    volumeCount));
+
+            return Response.noContent().build();
+        }
+        catch (ResourceNotFoundException e) {
+            String errorMsg = "Unable to locate workset: " + _worksetId;
+            return Response.status(Status.NOT_FOUND).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+        catch (Exception e) {
+            Log.error("updateVolumes", e);
+            String errorMsg = String.format("Cannot update volumes: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+    }
+
 }
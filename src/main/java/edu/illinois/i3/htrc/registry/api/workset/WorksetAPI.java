@@ -11,7 +11,9 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 /**
@@ -39,11 +41,14 @@ public interface WorksetAPI {
     /**
      * GET: Retrieve a workset
      *
-     * @param author The workset author, or null to use current user
+     * @param request Injected Request
+     * @param author  The workset author, or null to use current user
      * @return The retrieved workset
      */
     @GET
-    Response getWorkset(@QueryParam("author") String author);
+    Response getWorkset(
+        @Context Request request,
+        @QueryParam("author") String author);
 
     /**
      * PUT: Update/replace a workset
@@ -82,12 +87,24 @@ public interface WorksetAPI {
     /**
      * GET: Retrieve a workset's metadata
      *
-     * @param author The workset author, or null to use current user
+     * @param request Injected Request
+     * @param author  The workset author, or null to use current user
      * @return The retrieved workset metadata
      */
     @GET
     @Path("/metadata")
-    Response getWorksetMeta(@QueryParam("author") String author);
+    Response getWorksetMeta(
+        @Context Request request,
+        @QueryParam("author") String author);
+
+    /**
+     * GET: Retrieve the status of the latest asynchronous import of this workset
+     *
+     * @return The import status
+     */
+    @GET
+    @Path("/import")
+    Response getWorksetImport();
 
     /**
      * Get access to the API for managing this workset's tags
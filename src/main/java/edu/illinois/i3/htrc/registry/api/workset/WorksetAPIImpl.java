@@ -5,12 +5,24 @@ import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
 import edu.illinois.i3.htrc.registry.api.RegistryExtension;
 import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
 import edu.illinois.i3.htrc.registry.api.exceptions.RegistryExtensionException;
+import edu.illinois.i3.htrc.registry.api.utils.CacheUtils;
 import edu.illinois.i3.htrc.registry.api.utils.LogUtils;
+import edu.illinois.i3.htrc.registry.api.utils.PublicWorksetIndex;
 import edu.illinois.i3.htrc.registry.api.utils.RegistryUtils;
+import edu.illinois.i3.htrc.registry.api.utils.VolumeIdValidator;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetBitmaps;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetCounters;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetImports;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetManifest;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetSearchIndex;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetTagIndex;
 import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetVolumeIndex;
 import edu.illinois.i3.htrc.registry.entities.workset.Workset;
 import edu.illinois.i3.htrc.registry.entities.workset.WorksetContent;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetImport;
 import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
+import java.util.List;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
@@ -20,9 +32,13 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Variant;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.registry.core.ActionConstants;
@@ -83,7 +99,9 @@ public class WorksetAPIImpl implements WorksetAPI {
     }
 
     @GET
-    public Response getWorkset(@QueryParam("author") String author) {
+    public Response getWorkset(
+        @Context Request request,
+        @QueryParam("author") String author) {
         Log.debug(
             String.format("getWorkset: id=%s, author=%s, user=%s",
                           _worksetId, author, _userName)
@@ -95,6 +113,12 @@ public class WorksetAPIImpl implements WorksetAPI {
             }
             String resPath = _config.getWorksetPath(_worksetId, author);
             Resource resource = _registry.get(resPath);
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.WORKSET_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
+            }
 
             if (Log.isDebugEnabled()) {
                 LogUtils.logResource(Log, resource);
@@ -102,7 +126,7 @@ public class WorksetAPIImpl implements WorksetAPI {
 
             Workset workset = WorksetUtils.getWorksetFromResource(resource, _registry);
 
-            return Response.ok(workset).build();
+            return CacheUtils.ok(workset, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -144,6 +168,16 @@ public class WorksetAPIImpl implements WorksetAPI {
                            .build();
         }
 
+        if (worksetContent != null) {
+            List<String> invalidIds =
+                VolumeIdValidator.getInvalidVolumeIds(worksetContent.getVolumes());
+            if (!invalidIds.isEmpty()) {
+                String errorMsg = VolumeIdValidator.getErrorMessage(invalidIds);
+                return Response.status(Status.BAD_REQUEST).entity(errorMsg)
+                               .type(MediaType.TEXT_PLAIN).build();
+            }
+        }
+
         if (!_worksetId.equalsIgnoreCase(worksetMeta.getName())) {
             Log.warn(String.format(
                 "API call for workset name '%s' does not match payload workset name '%s'",
@@ -154,19 +188,24 @@ public class WorksetAPIImpl implements WorksetAPI {
             _registry.beginTransaction();
 
             String resPath = _config.getWorksetPath(_worksetId, _userName);
+            boolean wasPublic = false;
+            WorksetManifest supersededManifest = null;
 
             try {
                 Resource resource = _registry.get(resPath);
+                wasPublic = Boolean.parseBoolean(resource.getProperty(Constants.HTRC_PROP_PUBLIC));
 
                 // Check whether to update the workset metadata or replace the workset altogether
                 if (worksetContent == null) {
                     // Update
                     Log.debug("Updating workset");
                     resource.setDescription(worksetMeta.getDescription());
+                    WorksetUtils.updateRevision(resource);
                 }
                 else {
                     // Replace
                     Log.debug("Replacing workset");
+                    supersededManifest = WorksetUtils.getWorksetManifest(resource);
                     resource = WorksetUtils.createResourceFromWorkset(workset, _registry);
                 }
 
@@ -180,15 +219,32 @@ public class WorksetAPIImpl implements WorksetAPI {
                     RegistryUtils.authorizeEveryone(resPath, _registry, ActionConstants.GET);
                 }
                 else {
+                    PublicWorksetIndex.remove(resPath);
                     RegistryUtils.denyEveryone(resPath, _registry, ActionConstants.GET);
                 }
 
                 _registry.commitTransaction();
+                WorksetUtils.invalidateWorksetMeta(resPath);
+                WorksetUtils.deleteSupersededSegments(supersededManifest);
+                WorksetUtils.indexWorksetTags(resPath, updatedMeta.getTags());
+                if (worksetContent != null) {
+                    WorksetUtils.indexWorksetVolumes(resPath);
+                }
+                WorksetSearchIndex.update(resPath, updatedMeta, isPublic);
+                WorksetCounters.record(resPath, resource, isPublic);
+
+                if (isPublic) {
+                    WorksetUtils.addPublicWorkset(resPath);
+                }
 
                 return Response.ok(workset).build();
             }
             catch (Exception e) {
                 _registry.rollbackTransaction();
+                if (wasPublic && !isPublic) {
+                    // still public, but already removed from the public worksets index
+                    WorksetUtils.addPublicWorkset(resPath);
+                }
                 throw e;
             }
         }
@@ -216,7 +272,32 @@ public class WorksetAPIImpl implements WorksetAPI {
                 return Response.status(Status.NOT_FOUND).build();
             }
 
-            _registry.delete(resPath);
+            boolean wasPublic = RegistryUtils.isPublicResource(resPath, _registry);
+            WorksetManifest supersededManifest;
+
+            _registry.beginTransaction();
+            try {
+                PublicWorksetIndex.remove(resPath);
+                supersededManifest = WorksetUtils.getWorksetManifest(_registry.get(resPath));
+                _registry.delete(resPath);
+                _registry.commitTransaction();
+            }
+            catch (Exception e) {
+                _registry.rollbackTransaction();
+                if (wasPublic) {
+                    // still public, but already removed from the public worksets index
+                    WorksetUtils.addPublicWorkset(resPath);
+                }
+                throw e;
+            }
+
+            WorksetUtils.invalidateWorksetMeta(resPath);
+            WorksetUtils.deleteSupersededSegments(supersededManifest);
+            WorksetBitmaps.remove(resPath);
+            WorksetTagIndex.remove(resPath);
+            WorksetSearchIndex.remove(resPath);
+            WorksetVolumeIndex.remove(resPath);
+            WorksetCounters.remove(resPath);
 
             return Response.noContent().build();
         }
@@ -234,7 +315,9 @@ public class WorksetAPIImpl implements WorksetAPI {
 
     @GET
     @Path("/metadata")
-    public Response getWorksetMeta(@QueryParam("author") String author) {
+    public Response getWorksetMeta(
+        @Context Request request,
+        @QueryParam("author") String author) {
         Log.debug(
             String.format("getWorksetMeta: id=%s, author=%s, user=%s",
                           _worksetId, author, _userName)
@@ -246,6 +329,12 @@ public class WorksetAPIImpl implements WorksetAPI {
             }
             String resPath = _config.getWorksetPath(_worksetId, author);
             Resource resource = _registry.get(resPath);
+            Variant variant = CacheUtils.selectVariant(request, CacheUtils.WORKSET_VARIANTS);
+            ResponseBuilder notModified =
+                CacheUtils.evaluatePreconditions(request, resource, variant);
+            if (notModified != null) {
+                return notModified.build();
+            }
 
             if (Log.isDebugEnabled()) {
                 LogUtils.logResource(Log, resource);
@@ -255,7 +344,7 @@ public class WorksetAPIImpl implements WorksetAPI {
             Workset workset = new Workset();
             workset.setMetadata(worksetMeta);
 
-            return Response.ok(workset).build();
+            return CacheUtils.ok(workset, resource, variant).build();
         }
         catch (AuthorizationFailedException e) {
             return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
@@ -273,6 +362,22 @@ public class WorksetAPIImpl implements WorksetAPI {
         }
     }
 
+    @GET
+    @Path("/import")
+    public Response getWorksetImport() {
+        Log.debug(String.format("getWorksetImport: id=%s, user=%s", _worksetId, _userName));
+
+        String resPath = _config.getWorksetPath(_worksetId, _userName);
+        WorksetImport status = WorksetImports.getStatus(resPath);
+        if (status == null) {
+            String errorMsg = "No import found for workset: " + _worksetId;
+            return Response.status(Status.NOT_FOUND).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        return Response.ok(status).build();
+    }
+
     @Path("/tags")
     public TagsAPI getTagsAPI() {
         return new TagsAPIImpl(_worksetId, _registry);
@@ -2,6 +2,8 @@ package edu.illinois.i3.htrc.registry.api.workset;
 
 import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
 import edu.illinois.i3.htrc.registry.entities.workset.Workset;
+import java.io.InputStream;
+import java.util.List;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -10,8 +12,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 /**
  * JAX-RS Interface for accessing Worksets
@@ -29,21 +33,46 @@ import javax.ws.rs.core.Response;
 public interface WorksetsAPI {
 
     /**
-     * GET: Retrieve a user's list of worksets
+     * GET: Retrieve a user's list of worksets. When a limit or cursor is given, worksets are
+     * ordered by name and returned one page at a time; the next page, if any, is linked from
+     * the "Link" response header. When a tag is given, only the worksets having the tag are
+     * returned.
      *
+     * @param uriInfo       Injected UriInfo
      * @param includePublic True to include "public" worksets (shared with everyone), False
      *                      otherwise
+     * @param tag           The tag the worksets must have (default: any)
+     * @param limit         The maximum number of worksets to return (default: no limit)
+     * @param cursor        The cursor identifying the page to return (default: first page)
      * @return The list of worksets for the currently authorized user
      */
     @GET
-    Response getWorksets(@DefaultValue("false") @QueryParam("public") boolean includePublic);
+    Response getWorksets(
+        @Context UriInfo uriInfo,
+        @DefaultValue("false") @QueryParam("public") boolean includePublic,
+        @QueryParam("tag") String tag,
+        @QueryParam("limit") Integer limit,
+        @QueryParam("after") String cursor);
+
+    /**
+     * GET: Export all the worksets of the current user, including their volumes, as
+     * newline-delimited JSON (one workset per line)
+     *
+     * @return The streamed worksets
+     */
+    @GET
+    @Path("/export")
+    @Produces(HTRCMediaTypes.NDJSON)
+    Response exportWorksets();
 
     /**
      * POST: Upload a new workset
      *
      * @param workset  The workset
      * @param isPublic True to make this workset "public" (shared with everyone), False otherwise
-     * @return The workset
+     * @param async    True to import the workset in the background, False otherwise
+     * @return The workset, or (202 ACCEPTED) the import status if the workset is imported in
+     * the background; the import status can then be polled at the returned location
      */
     @POST
     @Consumes({
@@ -52,7 +81,112 @@ public interface WorksetsAPI {
     })
     Response newWorkset(
         Workset workset,
-        @DefaultValue("false") @QueryParam("public") boolean isPublic);
+        @DefaultValue("false") @QueryParam("public") boolean isPublic,
+        @DefaultValue("false") @QueryParam("async") boolean async);
+
+    /**
+     * POST: Compute the union, intersection or difference of the volumes of two or more
+     * worksets, optionally saving the result as a new workset
+     *
+     * @param operation The set operation: "union", "intersection" or "difference" (the
+     *                  volumes of the first workset not found in any of the other worksets)
+     * @param worksets  The worksets to combine, as "name" for worksets of the current user,
+     *                  or "author/name" for public worksets of other users
+     * @param saveAs    The name of the new workset to save the result as, or null to only
+     *                  return the resulting volumes
+     * @param isPublic  True to make the new workset "public" (shared with everyone), False
+     *                  otherwise
+     * @param countOnly True to only return the number of resulting volumes (as text/plain),
+     *                  False otherwise; cannot be combined with saveAs
+     * @return The resulting volumes, the new workset if the result is saved, or the number of
+     * resulting volumes
+     */
+    @POST
+    @Path("/combine")
+    @Produces({
+        HTRCMediaTypes.VOLUME_XML,
+        HTRCMediaTypes.VOLUME_JSON,
+        HTRCMediaTypes.WORKSET_XML,
+        HTRCMediaTypes.WORKSET_JSON,
+        MediaType.APPLICATION_XML,
+        MediaType.APPLICATION_JSON,
+        MediaType.TEXT_PLAIN
+    })
+    Response combineWorksets(
+        @QueryParam("op") String operation,
+        @QueryParam("workset") List<String> worksets,
+        @QueryParam("saveAs") String saveAs,
+        @DefaultValue("false") @QueryParam("public") boolean isPublic,
+        @DefaultValue("false") @QueryParam("count") boolean countOnly);
+
+    /**
+     * POST: Validate a list of volume ids, without storing them
+     *
+     * @param volumeIds The stream of volume ids to validate, one volume id per line
+     * @return The number of volume ids checked, followed by the invalid volume ids (if any),
+     * one per line; at most 1000 invalid volume ids are listed
+     */
+    @POST
+    @Path("/validate")
+    @Consumes(MediaType.TEXT_PLAIN)
+    @Produces(MediaType.TEXT_PLAIN)
+    Response validateVolumeIds(InputStream volumeIds);
+
+    /**
+     * GET: Retrieve the number of worksets of the current user having each tag, most frequent
+     * tags first
+     *
+     * @param includePublic True to also count "public" worksets (shared with everyone), False
+     *                      otherwise
+     * @param limit         The maximum number of tags to return (default: no limit)
+     * @return The tag counts
+     */
+    @GET
+    @Path("/tags")
+    @Produces({
+        HTRCMediaTypes.TAG_XML,
+        HTRCMediaTypes.TAG_JSON,
+        MediaType.APPLICATION_XML,
+        MediaType.APPLICATION_JSON
+    })
+    Response getTagCounts(
+        @DefaultValue("false") @QueryParam("public") boolean includePublic,
+        @QueryParam("limit") Integer limit);
+
+    /**
+     * GET: Search the worksets of the current user by name, description, author and tags, most
+     * relevant worksets first. The next page of results, if any, is linked from the "Link"
+     * response header, and the total number of matching worksets is returned in the
+     * "X-Total-Count" response header.
+     *
+     * @param uriInfo       Injected UriInfo
+     * @param query         The search query (Lucene query syntax; all terms must match)
+     * @param includePublic True to also search "public" worksets (shared with everyone), False
+     *                      otherwise
+     * @param offset        The number of results to skip (default: 0)
+     * @param limit         The maximum number of worksets to return (default: 20, max: 1000)
+     * @return The list of matching worksets
+     */
+    @GET
+    @Path("/search")
+    Response searchWorksets(
+        @Context UriInfo uriInfo,
+        @QueryParam("q") String query,
+        @DefaultValue("false") @QueryParam("public") boolean includePublic,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @DefaultValue("20") @QueryParam("limit") int limit);
+
+    /**
+     * GET: Retrieve the workset statistics: the number of worksets (in total, public, private,
+     * and per user), the total number of volumes, and the largest worksets. Restricted to
+     * administrators.
+     *
+     * @param top The number of largest worksets to return (default: 10)
+     * @return The workset statistics
+     */
+    @GET
+    @Path("/stats")
+    Response getWorksetStats(@DefaultValue("10") @QueryParam("top") int top);
 
     /**
      * Get access to a {@link WorksetAPI} instance used to manage individual worksets
@@ -5,16 +5,34 @@ import edu.illinois.i3.htrc.registry.api.HTRCMediaTypes;
 import edu.illinois.i3.htrc.registry.api.RegistryExtension;
 import edu.illinois.i3.htrc.registry.api.RegistryExtensionConfig;
 import edu.illinois.i3.htrc.registry.api.utils.LogUtils;
+import edu.illinois.i3.htrc.registry.api.utils.PagingUtils;
 import edu.illinois.i3.htrc.registry.api.utils.RegistryUtils;
+import edu.illinois.i3.htrc.registry.api.utils.VolumeIdValidator;
+import edu.illinois.i3.htrc.registry.api.utils.VolumeIdValidator.ValidationResult;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetCounters;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetImports;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetSearchIndex;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetSetOperation;
+import edu.illinois.i3.htrc.registry.api.utils.WorksetTagIndex;
 import edu.illinois.i3.htrc.registry.api.utils.WorksetUtils;
 import edu.illinois.i3.htrc.registry.entities.workset.Volume;
+import edu.illinois.i3.htrc.registry.entities.workset.Volumes;
 import edu.illinois.i3.htrc.registry.entities.workset.Workset;
 import edu.illinois.i3.htrc.registry.entities.workset.WorksetContent;
+import edu.illinois.i3.htrc.registry.entities.workset.WorksetImport;
 import edu.illinois.i3.htrc.registry.entities.workset.WorksetMeta;
 import edu.illinois.i3.htrc.registry.entities.workset.Worksets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -24,19 +42,26 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.registry.core.ActionConstants;
+import org.apache.lucene.queryparser.classic.ParseException;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+import org.wso2.carbon.registry.core.secure.AuthorizationFailedException;
 import org.wso2.carbon.registry.core.session.UserRegistry;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
@@ -71,35 +96,87 @@ public class WorksetsAPIImpl implements WorksetsAPI {
 
     @GET
     public Response getWorksets(
-        @DefaultValue("false") @QueryParam("public") boolean includePublic) {
+        @Context UriInfo uriInfo,
+        @DefaultValue("false") @QueryParam("public") boolean includePublic,
+        @QueryParam("tag") String tag,
+        @QueryParam("limit") Integer limit,
+        @QueryParam("after") String cursor) {
 
         String userName = getAuthenticatedUser();
-        Log.debug(String.format("getWorksets: user=%s, public=%s", userName, includePublic));
+        Log.debug(String.format("getWorksets: user=%s, public=%s, tag=%s, limit=%s, after=%s",
+                                userName, includePublic, tag, limit, cursor));
 
         if (userName == null) {
             return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
                            .type(MediaType.TEXT_PLAIN).build();
         }
 
+        if (limit != null && limit < 1) {
+            String errorMsg = String.format("Invalid limit: %d", limit);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        if (tag != null && tag.trim().isEmpty()) {
+            return Response.status(Status.BAD_REQUEST).entity("Invalid tag")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        boolean paged = (limit != null || cursor != null);
+        String after = null;
+        if (cursor != null) {
+            try {
+                after = PagingUtils.decodeCursor(cursor);
+            }
+            catch (IllegalArgumentException e) {
+                String errorMsg = String.format("Invalid cursor: %s", cursor);
+                return Response.status(Status.BAD_REQUEST).entity(errorMsg)
+                               .type(MediaType.TEXT_PLAIN).build();
+            }
+        }
+
+        List<String> pagePaths = null;
+
         Worksets worksets = new Worksets();
         List<Workset> worksetList = worksets.getWorksets();
 
         try {
             UserRegistry registry = RegistryUtils.getAdminRegistry();
             String userWorksetsPath = _config.getUserWorksetsPath(userName);
-            Collection userWorksetCollection = (Collection) registry.get(userWorksetsPath);
+            int publicLimit = (limit != null) ? limit : Integer.MAX_VALUE;
 
-            Set<String> worksetsPaths =
-                WorksetUtils.getWorksetsPaths(userWorksetCollection);
+            Set<String> worksetsPaths;
+            if (tag != null) {
+                worksetsPaths = WorksetTagIndex.getWorksetsPaths(tag, userWorksetsPath);
+            }
+            else {
+                Collection userWorksetCollection = (Collection) registry.get(userWorksetsPath);
+                worksetsPaths = WorksetUtils.getWorksetsPaths(userWorksetCollection);
+            }
 
             if (includePublic) {
-                Set<String> publicWorksetsPaths =
-                    WorksetUtils.getPublicWorksetsPathsViaSQL(_context);
+                // only the public worksets that can be part of the page are retrieved
+                Set<String> publicWorksetsPaths;
+                if (tag != null) {
+                    publicWorksetsPaths = paged ?
+                        WorksetTagIndex.getPublicWorksetsPaths(tag, after, publicLimit) :
+                        WorksetTagIndex.getPublicWorksetsPaths(tag);
+                }
+                else {
+                    publicWorksetsPaths = paged ?
+                        WorksetUtils.getPublicWorksetsPathsViaSQL(_context, after, publicLimit) :
+                        WorksetUtils.getPublicWorksetsPathsViaSQL(_context);
+                }
                 worksetsPaths.addAll(publicWorksetsPaths);
             }
 
-            Collection combined = WorksetUtils.getCollectionFromPaths(worksetsPaths);
-            List<WorksetMeta> metas = WorksetUtils.getWorksetsMeta(combined, registry);
+            if (paged) {
+                pagePaths = PagingUtils.getPage(worksetsPaths, after, limit);
+            }
+
+            Collection combined = WorksetUtils.getCollectionFromPaths(
+                paged ? pagePaths : worksetsPaths);
+            List<WorksetMeta> metas = WorksetUtils.getWorksetsMeta(combined, registry, _context);
             for (WorksetMeta meta : metas) {
                 Workset workset = new Workset();
                 workset.setMetadata(meta);
@@ -118,7 +195,44 @@ public class WorksetsAPIImpl implements WorksetsAPI {
             return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
         }
 
-        return Response.ok(worksets).build();
+        ResponseBuilder response = Response.ok(worksets);
+        if (pagePaths != null && limit != null && pagePaths.size() == limit) {
+            String lastPath = pagePaths.get(pagePaths.size() - 1);
+            response.header(HttpHeaders.LINK, PagingUtils.getNextLink(uriInfo, lastPath));
+        }
+
+        return response.build();
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(HTRCMediaTypes.NDJSON)
+    public Response exportWorksets() {
+        String userName = getAuthenticatedUser();
+        Log.debug(String.format("exportWorksets: user=%s", userName));
+
+        if (userName == null) {
+            return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        try {
+            UserRegistry registry = RegistryUtils.getAdminRegistry();
+            String userWorksetsPath = _config.getUserWorksetsPath(userName);
+            if (!registry.resourceExists(userWorksetsPath)) {
+                return Response.ok("", HTRCMediaTypes.NDJSON).build();
+            }
+
+            Collection userWorksetCollection = (Collection) registry.get(userWorksetsPath);
+            StreamingOutput output = new NDJSONWorksetsOutput(userWorksetCollection, registry);
+
+            return Response.ok(output, HTRCMediaTypes.NDJSON).build();
+        }
+        catch (RegistryException e) {
+            Log.error("exportWorksets", e);
+            String errorMsg = String.format("Cannot export worksets: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
     }
 
     @POST
@@ -128,10 +242,12 @@ public class WorksetsAPIImpl implements WorksetsAPI {
     })
     public Response newWorkset(
         Workset workset,
-        @DefaultValue("false") @QueryParam("public") boolean isPublic) {
+        @DefaultValue("false") @QueryParam("public") boolean isPublic,
+        @DefaultValue("false") @QueryParam("async") boolean async) {
 
         String userName = getAuthenticatedUser();
-        Log.debug(String.format("newWorkset: user=%s, public=%s", userName, isPublic));
+        Log.debug(String.format("newWorkset: user=%s, public=%s, async=%s",
+                                userName, isPublic, async));
 
         if (userName == null) {
             return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
@@ -154,16 +270,12 @@ public class WorksetsAPIImpl implements WorksetsAPI {
         //        }
 
         if (worksetContent != null) {
-            // check for obviously-invalid volume IDs
-            List<Volume> volumes = worksetContent.getVolumes();
-            for (Volume volume : volumes) {
-                String volumeId = volume.getId();
-                if (!volumeId.contains(".")) {
-                    String errorMsg = "Invalid volume ID detected in workset: " + volumeId;
-                    return Response.status(Status.BAD_REQUEST).entity(errorMsg)
-                                   .type(MediaType.TEXT_PLAIN)
-                                   .build();
-                }
+            List<String> invalidIds =
+                VolumeIdValidator.getInvalidVolumeIds(worksetContent.getVolumes());
+            if (!invalidIds.isEmpty()) {
+                String errorMsg = VolumeIdValidator.getErrorMessage(invalidIds);
+                return Response.status(Status.BAD_REQUEST).entity(errorMsg)
+                               .type(MediaType.TEXT_PLAIN).build();
             }
         }
 
@@ -187,34 +299,32 @@ public class WorksetsAPIImpl implements WorksetsAPI {
                                .build();
             }
 
-            registry.beginTransaction();
-            try {
-                Resource resource = WorksetUtils.createResourceFromWorkset(workset, registry);
-                resource.setProperty(Constants.HTRC_PROP_PUBLIC, Boolean.toString(isPublic));
-                resPath = registry.put(resPath, resource);
-                resUri = WorksetUtils.getWorksetNameUri(worksetName);
-                if (resUri == null)
-                    throw new Exception("Could not get a valid URI for: " + worksetName);
-                resUri = new URI(_request.getRequestURL().toString()).resolve(resUri);
-
-                Log.debug("Created workset: " + resPath);
-                WorksetMeta updatedMeta = WorksetUtils.updateResourceCommunityMeta(
-                    resource, workset.getMetadata(), registry);
-                workset.setMetadata(updatedMeta);
-
-                if (isPublic) {
-                    RegistryUtils.authorizeEveryone(resPath, registry, ActionConstants.GET);
-                }
-                else {
-                    RegistryUtils.denyEveryone(resPath, registry, ActionConstants.GET);
+            resUri = WorksetUtils.getWorksetNameUri(worksetName);
+            if (resUri == null)
+                throw new Exception("Could not get a valid URI for: " + worksetName);
+            resUri = new URI(_request.getRequestURL().toString()).resolve(resUri);
+
+            if (async) {
+                WorksetImport status =
+                    WorksetImports.submit(workset, resPath, isPublic, userName);
+                if (status == null) {
+                    String errorMsg = String.format(
+                        "An import of workset %s is already in progress", worksetName);
+                    return Response.status(Status.CONFLICT).entity(errorMsg)
+                                   .type(MediaType.TEXT_PLAIN).build();
                 }
 
-                registry.commitTransaction();
-            }
-            catch (Exception e) {
-                registry.rollbackTransaction();
-                throw e;
+                URI statusUri = UriBuilder.fromUri(resUri).path("import").build();
+                return Response.accepted(status).location(statusUri).build();
             }
+
+            resPath = WorksetUtils.putNewWorkset(workset, resPath, isPublic, registry, null);
+            Log.debug("Created workset: " + resPath);
+        }
+        catch (RejectedExecutionException e) {
+            String errorMsg = "Too many workset imports in progress, please retry later";
+            return Response.status(Status.SERVICE_UNAVAILABLE).entity(errorMsg)
+                           .type(MediaType.TEXT_PLAIN).build();
         }
         catch (Exception e) {
             Log.error("newWorkset", e);
@@ -225,6 +335,300 @@ public class WorksetsAPIImpl implements WorksetsAPI {
         return Response.created(resUri).entity(workset).build();
     }
 
+    @POST
+    @Path("/combine")
+    @Produces({
+        HTRCMediaTypes.VOLUME_XML,
+        HTRCMediaTypes.VOLUME_JSON,
+        HTRCMediaTypes.WORKSET_XML,
+        HTRCMediaTypes.WORKSET_JSON,
+        MediaType.APPLICATION_XML,
+        MediaType.APPLICATION_JSON,
+        MediaType.TEXT_PLAIN
+    })
+    public Response combineWorksets(
+        @QueryParam("op") String operation,
+        @QueryParam("workset") List<String> worksets,
+        @QueryParam("saveAs") String saveAs,
+        @DefaultValue("false") @QueryParam("public") boolean isPublic,
+        @DefaultValue("false") @QueryParam("count") boolean countOnly) {
+
+        String userName = getAuthenticatedUser();
+        Log.debug(String.format(
+            "combineWorksets: user=%s, op=%s, worksets=%s, saveAs=%s, count=%s",
+            userName, operation, worksets, saveAs, countOnly));
+
+        if (userName == null) {
+            return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        WorksetSetOperation setOperation = WorksetSetOperation.forName(operation);
+        if (setOperation == null) {
+            String errorMsg = "Unknown set operation: " + operation;
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        if (worksets.size() < 2) {
+            String errorMsg = "At least two worksets must be specified";
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        if (countOnly && saveAs != null) {
+            String errorMsg = "The count and saveAs parameters cannot be combined";
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        List<Volume> volumes;
+
+        try {
+            UserRegistry registry = RegistryUtils.getUserRegistry(userName);
+            List<Resource> resources = new ArrayList<>(worksets.size());
+            for (String worksetRef : worksets) {
+                int idx = worksetRef.indexOf('/');
+                String author = (idx >= 0) ? worksetRef.substring(0, idx) : userName;
+                String worksetId = worksetRef.substring(idx + 1);
+                String resPath = _config.getWorksetPath(worksetId, author);
+
+                try {
+                    Resource resource = registry.get(resPath);
+                    boolean isPublicWorkset =
+                        Boolean.parseBoolean(resource.getProperty(Constants.HTRC_PROP_PUBLIC));
+                    if (!author.equals(userName) && !isPublicWorkset) {
+                        throw new AuthorizationFailedException(
+                            String.format("%s is not a public workset", worksetRef));
+                    }
+                    resources.add(resource);
+                }
+                catch (ResourceNotFoundException e) {
+                    String errorMsg = "Unable to locate workset: " + worksetRef;
+                    return Response.status(Status.NOT_FOUND).entity(errorMsg)
+                                   .type(MediaType.TEXT_PLAIN).build();
+                }
+            }
+
+            if (countOnly) {
+                int count = setOperation.count(resources);
+                return Response.ok(Integer.toString(count)).type(MediaType.TEXT_PLAIN).build();
+            }
+
+            volumes = setOperation.apply(resources);
+        }
+        catch (AuthorizationFailedException e) {
+            return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+        catch (Exception e) {
+            Log.error("combineWorksets", e);
+            String errorMsg = String.format("Cannot combine worksets: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+
+        if (saveAs == null) {
+            Volumes result = new Volumes();
+            result.getVolumes().addAll(volumes);
+
+            return Response.ok(result).build();
+        }
+
+        WorksetMeta worksetMeta = new WorksetMeta();
+        worksetMeta.setName(saveAs);
+        worksetMeta.setDescription(
+            String.format("The %s of worksets %s", setOperation.getName(), worksets));
+        WorksetContent worksetContent = new WorksetContent();
+        worksetContent.setVolumes(volumes);
+        Workset workset = new Workset();
+        workset.setMetadata(worksetMeta);
+        workset.setContent(worksetContent);
+
+        return newWorkset(workset, isPublic, false);
+    }
+
+    @POST
+    @Path("/validate")
+    @Consumes(MediaType.TEXT_PLAIN)
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response validateVolumeIds(InputStream volumeIds) {
+        String userName = getAuthenticatedUser();
+        Log.debug(String.format("validateVolumeIds: user=%s", userName));
+
+        if (userName == null) {
+            return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        ValidationResult result;
+
+        try (Reader reader = new InputStreamReader(volumeIds, StandardCharsets.UTF_8)) {
+            result = VolumeIdValidator.validate(reader);
+        }
+        catch (IOException e) {
+            Log.error("validateVolumeIds", e);
+            String errorMsg = String.format("Cannot read volume IDs: %s", e.toString());
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        Log.debug(String.format("validateVolumeIds: checked=%d, invalid=%d",
+                                result.getCount(), result.getInvalidCount()));
+
+        StringBuilder sb = new StringBuilder()
+            .append(String.format("%d volume IDs checked, %d invalid",
+                                  result.getCount(), result.getInvalidCount()));
+        for (String volumeId : result.getInvalidIds()) {
+            sb.append('\n').append(volumeId);
+        }
+        int unlisted = result.getInvalidCount() - result.getInvalidIds().size();
+        if (unlisted > 0) {
+            sb.append('\n').append(String.format("(%d more invalid volume IDs not listed)",
+                                                  unlisted));
+        }
+
+        return Response.ok(sb.toString()).type(MediaType.TEXT_PLAIN).build();
+    }
+
+    @GET
+    @Path("/tags")
+    public Response getTagCounts(
+        @DefaultValue("false") @QueryParam("public") boolean includePublic,
+        @QueryParam("limit") Integer limit) {
+
+        String userName = getAuthenticatedUser();
+        Log.debug(String.format("getTagCounts: user=%s, public=%s, limit=%s",
+                                userName, includePublic, limit));
+
+        if (userName == null) {
+            return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        if (limit != null && limit < 1) {
+            String errorMsg = String.format("Invalid limit: %d", limit);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        try {
+            String userWorksetsPath = _config.getUserWorksetsPath(userName);
+            Map<String, Integer> counts =
+                WorksetTagIndex.getTagCounts(userWorksetsPath, includePublic, limit);
+
+            return Response.ok(WorksetUtils.createTagCounts(counts)).build();
+        }
+        catch (Exception e) {
+            Log.error("getTagCounts", e);
+            String errorMsg = String.format("Cannot retrieve tag counts: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+    }
+
+    @GET
+    @Path("/search")
+    public Response searchWorksets(
+        @Context UriInfo uriInfo,
+        @QueryParam("q") String query,
+        @DefaultValue("false") @QueryParam("public") boolean includePublic,
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @DefaultValue("20") @QueryParam("limit") int limit) {
+        String userName = getAuthenticatedUser();
+        Log.debug(String.format("searchWorksets: user=%s, q=%s, public=%s, offset=%d, limit=%d",
+                                userName, query, includePublic, offset, limit));
+
+        if (userName == null) {
+            return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        if (query == null || query.trim().isEmpty()) {
+            return Response.status(Status.BAD_REQUEST).entity("Missing search query")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        if (limit < 1 || limit > WorksetSearchIndex.MAX_PAGE_SIZE) {
+            String errorMsg = String.format("Invalid limit: %d", limit);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        if (offset < 0 || offset > WorksetSearchIndex.MAX_RESULTS - limit) {
+            String errorMsg = String.format("Invalid offset: %d", offset);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        Worksets worksets = new Worksets();
+        List<Workset> worksetList = worksets.getWorksets();
+        WorksetSearchIndex.SearchResults results;
+
+        try {
+            UserRegistry registry = RegistryUtils.getAdminRegistry();
+            results = WorksetSearchIndex.search(
+                query, _config.getUserWorksetsPath(userName), includePublic, offset, limit);
+
+            Collection matches = WorksetUtils.getCollectionFromPaths(results.getPaths());
+            List<WorksetMeta> metas = WorksetUtils.getWorksetsMeta(matches, registry, _context);
+            for (WorksetMeta meta : metas) {
+                Workset workset = new Workset();
+                workset.setMetadata(meta);
+                worksetList.add(workset);
+            }
+        }
+        catch (ParseException e) {
+            String errorMsg = String.format("Invalid search query: %s", e.getMessage());
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+        catch (Exception e) {
+            Log.error("searchWorksets", e);
+            String errorMsg = String.format("Cannot search worksets: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+
+        ResponseBuilder response = Response.ok(worksets);
+        response.header(PagingUtils.TOTAL_COUNT_HEADER, results.getTotalHits());
+        int nextOffset = offset + limit;
+        if (nextOffset < Math.min(results.getTotalHits(), WorksetSearchIndex.MAX_RESULTS)) {
+            response.header(HttpHeaders.LINK, PagingUtils.getNextOffsetLink(uriInfo, nextOffset));
+        }
+
+        return response.build();
+    }
+
+    @GET
+    @Path("/stats")
+    public Response getWorksetStats(@DefaultValue("10") @QueryParam("top") int top) {
+        String userName = getAuthenticatedUser();
+        Log.debug(String.format("getWorksetStats: user=%s, top=%d", userName, top));
+
+        if (userName == null) {
+            return Response.status(Status.UNAUTHORIZED).entity("Not authenticated")
+                           .type(MediaType.TEXT_PLAIN).build();
+        }
+
+        if (top < 0 || top > WorksetCounters.MAX_TOP) {
+            String errorMsg = String.format("Invalid top: %d", top);
+            return Response.status(Status.BAD_REQUEST).entity(errorMsg).type(MediaType.TEXT_PLAIN)
+                           .build();
+        }
+
+        try {
+            if (!RegistryUtils.isAdmin(userName)) {
+                return Response.status(Status.UNAUTHORIZED).entity("Insufficient permissions")
+                               .type(MediaType.TEXT_PLAIN).build();
+            }
+
+            return Response.ok(WorksetCounters.getStats(top)).build();
+        }
+        catch (Exception e) {
+            Log.error("getWorksetStats", e);
+            String errorMsg = String.format("Cannot retrieve workset statistics: %s", e.toString());
+            return Response.serverError().entity(errorMsg).type(MediaType.TEXT_PLAIN).build();
+        }
+    }
+
     @Path("/{worksetId}")
     public WorksetAPI getWorksetAPI(@PathParam("worksetId") String worksetId) {
         String userName = getAuthenticatedUser();